@@ -31,6 +31,10 @@ public interface IStorageControllerGui {
     //region Getter / Setter
     void setStacks(List<ItemStack> stacks);
 
+    long getStackVersion();
+
+    void setStackVersion(long version);
+
     void setUsedSlots(int slots);
 
     void setMaxSlots(int slots);
@@ -39,4 +43,12 @@ public interface IStorageControllerGui {
 
     void setLinkedMachines(List<MachineReference> machines);
     //endregion Getter / Setter
+
+    /**
+     * Applies an incremental stack update.
+     *
+     * @param changedStacks stacks with their new total count.
+     * @param removedStacks stacks that are no longer stored.
+     */
+    void applyStackChanges(List<ItemStack> changedStacks, List<ItemStack> removedStacks);
 }
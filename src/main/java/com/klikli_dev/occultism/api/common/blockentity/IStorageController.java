@@ -23,33 +23,53 @@
 package com.klikli_dev.occultism.api.common.blockentity;
 
 import com.klikli_dev.occultism.api.common.container.IItemStackComparator;
+import com.klikli_dev.occultism.api.common.container.IStorageControllerContainer;
 import com.klikli_dev.occultism.api.common.data.GlobalBlockPos;
 import com.klikli_dev.occultism.api.common.data.MachineReference;
 import com.klikli_dev.occultism.network.MessageUpdateStacks;
+import com.klikli_dev.occultism.network.MessageUpdateStacksDelta;
 import net.minecraft.world.item.ItemStack;
 
+import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
 
 public interface IStorageController {
     //region Getter / Setter
 
     /**
-     * Gets a list of all stacks in the storage controller. Use sparingly! This list can be large and thus cause a lot
-     * of network traffic as well as performance issues in collecting it.
+     * Gets a list of all stacks in the storage controller, one stack per distinct item with the total count.
+     * Read from the maintained aggregate, but still copies every entry, so large lists can cause a lot of network
+     * traffic if sent.
      *
      * @return all stacks available in the storage controller.
      */
     List<ItemStack> getStacks();
 
     /**
-     * Gets a message to update stacks, re-uses cached messages whenever possible
+     * Gets a message to update stacks, re-uses cached messages whenever possible.
+     * The stacks are snapshotted immediately, but large messages are compressed off the server thread.
      *
-     * @return the stack update message.
+     * @return a future completing with the stack update message, possibly on a worker thread.
      */
-    MessageUpdateStacks getMessageUpdateStacks();
+    CompletableFuture<MessageUpdateStacks> getMessageUpdateStacks();
+
+    /**
+     * Gets a message containing only the stacks that changed since the given version.
+     *
+     * @param sinceVersion the stack version the receiver currently has.
+     * @return the delta message, or null if the changes are no longer known and a full update is required.
+     */
+    @Nullable
+    MessageUpdateStacksDelta getMessageUpdateStacksDelta(long sinceVersion);
+
+    /**
+     * @return the current version of the stored stacks, incremented whenever the contents change.
+     */
+    long getStackVersion();
 
     /**
      * @return the max slots available in this storage controller.
@@ -62,7 +82,7 @@ public interface IStorageController {
     void setMaxSlots(int slots);
 
     /**
-     * @return the used up slots. Usually lazily updated when calling getStacks.
+     * @return the used up slots.
      */
     int getUsedSlots();
 
@@ -141,6 +161,18 @@ public interface IStorageController {
      */
     ItemStack getItemStack(Predicate<ItemStack> comparator, int requestedSize, boolean simulate);
 
+    /**
+     * Gets multiple matching itemstacks from the controller at once, e.g. all ingredients for a crafting grid.
+     * Either all requests are fulfilled, or nothing is extracted.
+     *
+     * @param comparators    the comparators to match against, one per request. Null entries request nothing.
+     * @param requestedSizes the stack size to get per request.
+     * @param simulate       true for simulation
+     * @return the matching item stacks in request order, or null if not all requests could be fulfilled.
+     */
+    @Nullable
+    List<ItemStack> getItemStacks(List<? extends Predicate<ItemStack>> comparators, int[] requestedSizes, boolean simulate);
+
     /**
      * Gets the available amount of the matching item stack in the controller.
      *
@@ -154,4 +186,17 @@ public interface IStorageController {
      */
     void onContentsChanged();
 
+    /**
+     * Registers a container that displays this controller's stacks. Viewers receive stack updates at the end of each
+     * tick in which the contents changed.
+     *
+     * @param viewer the container to update.
+     */
+    void addViewer(IStorageControllerContainer viewer);
+
+    /**
+     * @param viewer the container to no longer update.
+     */
+    void removeViewer(IStorageControllerContainer viewer);
+
 }
@@ -41,6 +41,12 @@ public interface IStorageControllerContainer {
      * @return true if this is an item based access to the controller, false if it is a block.
      */
     boolean isContainerItem();
+
+    /**
+     * @param storageController the storage controller to check.
+     * @return true if this container is still open and displays the given storage controller.
+     */
+    boolean isViewing(IStorageController storageController);
     //endregion Getter / Setter
 
     /**
@@ -57,4 +63,15 @@ public interface IStorageControllerContainer {
      */
     void updateOrderSlot(boolean force);
 
+    /**
+     * Sends the stacks of the storage controller to the player. Only the changes since the last sync are sent,
+     * unless no previous sync is known for the current storage controller.
+     */
+    void syncStacks();
+
+    /**
+     * Forces the next call to {@link #syncStacks()} to send a full snapshot.
+     */
+    void invalidateStackSync();
+
 }
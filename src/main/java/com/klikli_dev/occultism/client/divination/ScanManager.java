@@ -24,15 +24,9 @@ package com.klikli_dev.occultism.client.divination;
 
 import com.klikli_dev.occultism.Occultism;
 import com.klikli_dev.occultism.integration.theurgy.TheurgyIntegration;
-import com.klikli_dev.occultism.util.Math3DUtil;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.level.block.Block;
-import net.minecraft.world.phys.Vec3;
-
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
 
 /**
  * Based on https://github.com/MightyPirates/Scannable
@@ -41,54 +35,41 @@ public class ScanManager {
     public static final ScanManager instance = new ScanManager();
     public static final int SCAN_DURATION_TICKS = 40;
     public static final int SCAN_RADIUS_BLOCKS = 96;
-    List<BlockPos> results = new ArrayList<>();
     private Scanner scanner;
-    private int scanningTicks = -1;
 
     public void beginScan(Player player, Block target) {
         this.cancelScan();
 
         this.scanner = new Scanner(target);
-        this.scanner.initialize(player, player.position(), Occultism.CLIENT_CONFIG.misc.divinationRodScanRange.get(), SCAN_DURATION_TICKS);
         if (!TheurgyIntegration.isLoaded()) //only use if theurgy not used, because if it is, we use a particle effect that only goes to the closest target
             this.scanner.setHighlightAllResults(Occultism.CLIENT_CONFIG.misc.divinationRodHighlightAllResults.get());
+        //the search itself runs on a worker thread, the ticks only hand over results to highlight
+        this.scanner.initialize(player, player.position(), Occultism.CLIENT_CONFIG.misc.divinationRodScanRange.get());
     }
 
-    public void updateScan(Player player, boolean forceFinish) {
-        final int remainingTicks = SCAN_DURATION_TICKS - this.scanningTicks;
-
-        if (remainingTicks <= 0 || this.scanner == null) {
+    public void updateScan(Player player) {
+        if (this.scanner == null) {
             return;
         }
 
-        //if we are not forcing we simply tick once
-        if (!forceFinish) {
-            this.scanner.scan(result -> this.results.add(result));
-            this.scanningTicks++;
-            return;
-        }
-
-        //when forcing we scan through all remaining tikcs at once
-        for (int i = 0; i < remainingTicks; i++) {
-            this.scanner.scan(result -> this.results.add(result));
-            this.scanningTicks++;
-        }
+        this.scanner.scan();
     }
 
     public BlockPos finishScan(Player player) {
-        this.updateScan(player, true);
+        if (this.scanner == null) {
+            return null;
+        }
 
-        Vec3 scanCenter = player.position();
-        this.results
-                .sort(Comparator.comparing(result -> scanCenter.distanceToSqr(Math3DUtil.center(result))));
-        BlockPos result = !this.results.isEmpty() ? this.results.get(0) : null;
+        //the scanner keeps track of the nearest result, so there is nothing to sort here
+        BlockPos result = this.scanner.getResult();
+        this.updateScan(player);
         this.cancelScan();
         return result;
     }
 
     public void cancelScan() {
+        if (this.scanner != null)
+            this.scanner.reset();
         this.scanner = null;
-        this.results.clear();
-        this.scanningTicks = -1;
     }
 }
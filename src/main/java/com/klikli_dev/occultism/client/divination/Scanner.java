@@ -22,21 +22,42 @@
 
 package com.klikli_dev.occultism.client.divination;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.klikli_dev.occultism.Occultism;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
 import net.minecraft.util.Mth;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
 import net.minecraft.world.phys.Vec3;
 
-import java.util.function.Consumer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Based on https://github.com/MightyPirates/Scannable
+ * <p>
+ * Chunk sections whose palette cannot contain the target are skipped on initialize, the remaining sections are
+ * copied and searched on a worker thread, closest sections first, keeping only the nearest result.
  */
 public class Scanner {
+    /**
+     * Own worker, the background executor is shared with the integrated server's chunk generation and can be busy for a long time.
+     */
+    private static final ThreadPoolExecutor SEARCH_EXECUTOR = createSearchExecutor();
+
     protected Block target;
 
     protected Player player;
@@ -49,12 +70,12 @@ public class Scanner {
     protected BlockPos min;
     protected BlockPos max;
 
-    //the current scanned block
-    protected int x;
-    protected int y;
-    protected int z;
     protected boolean highlightAllResults;
-    private int blocksPerTick;
+
+    //results found by the worker that still need to be highlighted on the render thread
+    protected Queue<BlockPos> pendingHighlights = new ConcurrentLinkedQueue<>();
+    protected CompletableFuture<BlockPos> result;
+    protected volatile boolean cancelled;
 
     public Scanner(Block target) {
         this.target = target;
@@ -64,75 +85,147 @@ public class Scanner {
         this.highlightAllResults = highlightAllResults;
     }
 
-    public void initialize(Player player, Vec3 center, float radius, int totalTicks) {
+    public void initialize(Player player, Vec3 center, float radius) {
         this.player = player;
         this.center = center;
         this.radius = radius;
         this.radiusSquared = this.radius * this.radius;
         this.min = BlockPos.containing(center).offset(Mth.floor(-this.radius), Mth.floor(-this.radius), Mth.floor(-this.radius));
         this.max = BlockPos.containing(center).offset(Mth.floor(this.radius), Mth.floor(this.radius), Mth.floor(this.radius));
-        this.x = this.min.getX();
-        this.y = this.min.getY() - 1;//first move next increments this to min.getY();
-        this.z = this.min.getZ();
 
-        BlockPos size = this.max.subtract(this.min);
-        int blockCount = (size.getX() + 1) * (size.getY() + 1) * (size.getZ() + 1);
-        this.blocksPerTick = Mth.ceil(blockCount / (float) totalTicks);
+        //palettes are only read on the render thread, the worker gets copies of the candidate sections
+        List<SectionSnapshot> candidates = this.collectCandidates(player.level());
+        //the worker only gets its own copies, reset() may clear the fields while it runs
+        boolean highlightAll = this.highlightAllResults;
+        Vec3 searchCenter = this.center;
+        float searchRadiusSquared = this.radiusSquared;
+        this.result = CompletableFuture.supplyAsync(() -> {
+            try {
+                return this.search(candidates, searchCenter, searchRadiusSquared, highlightAll);
+            } catch (Exception e) {
+                //a failed scan simply finds nothing
+                Occultism.LOGGER.warn("Divination rod scan failed.", e);
+                return null;
+            }
+        }, SEARCH_EXECUTOR);
+    }
+
+    private static ThreadPoolExecutor createSearchExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("Occultism Divination Scan %d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     public void reset() {
-        this.player = null;
-        this.center = null;
-        this.radius = 0;
-        this.radiusSquared = 0;
-        this.min = null;
-        this.max = null;
+        this.cancelled = true;
     }
 
-    public void scan(Consumer<BlockPos> resultConsumer) {
-        Level level = this.player.level();
-        for (int i = 0; i < this.blocksPerTick; i++) {
-            //move to next block
-            if (!this.nextBlock(level)) {
-                return;
-            }
+    /**
+     * Highlights the results the worker found since the last call, if requested.
+     * Must be called on the render thread.
+     */
+    public void scan() {
+        BlockPos pos;
+        while ((pos = this.pendingHighlights.poll()) != null) {
+            Occultism.SELECTED_BLOCK_RENDERER.selectBlock(pos, System.currentTimeMillis() + 10000);
+        }
+    }
 
-            //check if block is within radius
-            if (this.center.distanceToSqr(this.x + 0.5, this.y + 0.5, this.z + 0.5) > this.radiusSquared) {
-                continue;
-            }
+    /**
+     * Gets the result without waiting for the worker, so the render thread never blocks.
+     *
+     * @return the closest matching block, or null if none was found or the worker is not done yet.
+     */
+    public BlockPos getResult() {
+        if (this.result == null || !this.result.isDone())
+            return null;
+        return this.result.getNow(null);
+    }
+
+    public boolean isValidBlock(BlockState state) {
+        return state.getBlock() == this.target;
+    }
+
+    protected List<SectionSnapshot> collectCandidates(Level level) {
+        List<SectionSnapshot> candidates = new ArrayList<>();
+        int minSectionY = SectionPos.blockToSectionCoord(Math.max(this.min.getY(), level.getMinBuildHeight()));
+        int maxSectionY = SectionPos.blockToSectionCoord(Math.min(this.max.getY(), level.getMaxBuildHeight() - 1));
+
+        for (int chunkX = SectionPos.blockToSectionCoord(this.min.getX()); chunkX <= SectionPos.blockToSectionCoord(this.max.getX()); chunkX++) {
+            for (int chunkZ = SectionPos.blockToSectionCoord(this.min.getZ()); chunkZ <= SectionPos.blockToSectionCoord(this.max.getZ()); chunkZ++) {
+                LevelChunk chunk = level.getChunkSource().getChunk(chunkX, chunkZ, false);
+                if (chunk == null)
+                    continue;
+
+                for (int sectionY = minSectionY; sectionY <= maxSectionY; sectionY++) {
+                    double distanceSquared = this.distanceToSectionSqr(chunkX, sectionY, chunkZ);
+                    if (distanceSquared > this.radiusSquared)
+                        continue;
 
-            BlockPos pos = new BlockPos(this.x, this.y, this.z);
-            BlockState state = level.getBlockState(pos);
+                    LevelChunkSection section = chunk.getSection(chunk.getSectionIndexFromSectionY(sectionY));
+                    if (section.hasOnlyAir() || !section.maybeHas(this::isValidBlock))
+                        continue;
 
-            //if this is the block we search for, consume it.
-            if (this.isValidBlock(state)) {
-                if (this.highlightAllResults) {
-                    Occultism.SELECTED_BLOCK_RENDERER.selectBlock(pos, System.currentTimeMillis() + 10000);
+                    candidates.add(new SectionSnapshot(chunkX, sectionY, chunkZ, distanceSquared, section.getStates().copy()));
                 }
-                resultConsumer.accept(pos);
             }
         }
+
+        candidates.sort(Comparator.comparingDouble(SectionSnapshot::distanceSquared));
+        return candidates;
     }
 
-    public boolean nextBlock(Level level) {
-        this.y++;
-        if (this.y > this.max.getY() || this.y >= level.getHeight()) {
-            this.y = this.min.getY();
-            this.x++;
-            if (this.x > this.max.getX()) {
-                this.x = this.min.getX();
-                this.z++;
-                if (this.z > this.max.getZ()) {
-                    this.blocksPerTick = 0;
-                    return false;
+    protected BlockPos search(List<SectionSnapshot> candidates, Vec3 center, float radiusSquared, boolean highlightAll) {
+        BlockPos nearest = null;
+        double nearestDistance = radiusSquared;
+
+        for (SectionSnapshot candidate : candidates) {
+            if (this.cancelled)
+                return null;
+
+            //sections are sorted by distance, once no block of the next section can be closer we are done
+            if (!highlightAll && nearest != null && candidate.distanceSquared() > nearestDistance)
+                break;
+
+            int baseX = SectionPos.sectionToBlockCoord(candidate.x());
+            int baseY = SectionPos.sectionToBlockCoord(candidate.y());
+            int baseZ = SectionPos.sectionToBlockCoord(candidate.z());
+            for (int y = 0; y < SectionPos.SECTION_SIZE; y++) {
+                for (int z = 0; z < SectionPos.SECTION_SIZE; z++) {
+                    for (int x = 0; x < SectionPos.SECTION_SIZE; x++) {
+                        if (!this.isValidBlock(candidate.states().get(x, y, z)))
+                            continue;
+
+                        double distance = center.distanceToSqr(baseX + x + 0.5, baseY + y + 0.5, baseZ + z + 0.5);
+                        if (distance > radiusSquared)
+                            continue;
+
+                        BlockPos pos = new BlockPos(baseX + x, baseY + y, baseZ + z);
+                        if (highlightAll)
+                            this.pendingHighlights.add(pos);
+                        if (nearest == null || distance < nearestDistance) {
+                            nearest = pos;
+                            nearestDistance = distance;
+                        }
+                    }
                 }
             }
         }
-        return true;
+        return nearest;
     }
 
-    public boolean isValidBlock(BlockState state) {
-        return state.getBlock() == this.target;
+    /**
+     * @return the squared distance from the scan center to the closest block center in the given section.
+     */
+    protected double distanceToSectionSqr(int sectionX, int sectionY, int sectionZ) {
+        double dx = this.center.x - Mth.clamp(this.center.x, SectionPos.sectionToBlockCoord(sectionX) + 0.5, SectionPos.sectionToBlockCoord(sectionX, 15) + 0.5);
+        double dy = this.center.y - Mth.clamp(this.center.y, SectionPos.sectionToBlockCoord(sectionY) + 0.5, SectionPos.sectionToBlockCoord(sectionY, 15) + 0.5);
+        double dz = this.center.z - Mth.clamp(this.center.z, SectionPos.sectionToBlockCoord(sectionZ) + 0.5, SectionPos.sectionToBlockCoord(sectionZ, 15) + 0.5);
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    protected record SectionSnapshot(int x, int y, int z, double distanceSquared, PalettedContainer<BlockState> states) {
     }
 }
@@ -63,9 +63,9 @@ public class DimensionalMineshaftScreen extends AbstractContainerScreen<Dimensio
         RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, 1.0F);
         guiGraphics.blit(TEXTURE, this.leftPos, this.topPos, 0, 0, this.imageWidth, this.imageHeight);
 
-        int miningTime = this.otherworldMiner.miningTime;
-        int progress = (int) (18 * (1.0F - (float) miningTime / this.otherworldMiner.maxMiningTime));
-        if (progress > 0 && miningTime > 0) {
+        int remainingProgress = this.menu.getRemainingProgress();
+        int progress = (int) (18 * (1.0F - (float) remainingProgress / DimensionalMineshaftContainer.PROGRESS_RESOLUTION));
+        if (progress > 0 && remainingProgress > 0) {
             guiGraphics.blit(TEXTURE, this.leftPos + 61, this.topPos + 41, 176, 0, progress + 1, 4);
         }
     }
@@ -22,7 +22,6 @@
 
 package com.klikli_dev.occultism.client.gui.storage;
 
-import com.google.common.base.Joiner;
 import com.google.common.collect.Lists;
 import com.klikli_dev.occultism.Occultism;
 import com.klikli_dev.occultism.OccultismConstants;
@@ -35,6 +34,7 @@ import com.klikli_dev.occultism.client.gui.controls.LabelWidget;
 import com.klikli_dev.occultism.client.gui.controls.MachineSlotWidget;
 import com.klikli_dev.occultism.client.gui.controls.SizedImageButton;
 import com.klikli_dev.occultism.common.container.storage.StorageControllerContainerBase;
+import com.klikli_dev.occultism.common.misc.ItemStackKey;
 import com.klikli_dev.occultism.integration.jei.JeiAccess;
 import com.klikli_dev.occultism.integration.jei.JeiSettings;
 import com.klikli_dev.occultism.network.*;
@@ -59,7 +59,6 @@ import net.minecraft.world.Container;
 import net.minecraft.world.ContainerListener;
 import net.minecraft.world.entity.player.Inventory;
 import net.minecraft.world.item.ItemStack;
-import net.minecraft.world.item.TooltipFlag;
 import net.minecraft.world.level.Level;
 import net.minecraftforge.client.event.ScreenEvent;
 import net.minecraftforge.eventbus.api.Event;
@@ -67,8 +66,9 @@ import net.minecraftforge.eventbus.api.Event;
 import java.awt.*;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 public abstract class StorageControllerGuiBase<T extends StorageControllerContainerBase> extends AbstractContainerScreen<T> implements IStorageControllerGui, IStorageControllerGuiContainer, ContainerListener {
 
@@ -77,12 +77,16 @@ public abstract class StorageControllerGuiBase<T extends StorageControllerContai
             "textures/gui/storage_controller_droparea.png");
     protected static final ResourceLocation BUTTONS = new ResourceLocation(Occultism.MODID, "textures/gui/buttons.png");
     protected static final String TRANSLATION_KEY_BASE = "gui." + Occultism.MODID + ".storage_controller";
-    public int lastStacksCount;
+    /**
+     * Time spent filtering per frame, larger searches continue in the next frames and show partial results meanwhile.
+     */
+    protected static final long SEARCH_BUDGET_NANOS = 2_000_000L;
     public List<ItemStack> stacks;
     public List<MachineReference> linkedMachines;
     public IStorageControllerContainer storageControllerContainer;
     public int usedSlots;
     public int maxSlots;
+    public long stackVersion = -1;
     public StorageControllerGuiMode guiMode = StorageControllerGuiMode.INVENTORY;
     protected ItemStack stackUnderMouse = ItemStack.EMPTY;
     protected EditBox searchBar;
@@ -106,10 +110,23 @@ public abstract class StorageControllerGuiBase<T extends StorageControllerContai
     protected boolean forceFocus;
     protected long lastClick;
 
-    private int lastCachedStacksToDisplayCount;
+    /**
+     * Precomputed search and sort strings for the current stacks.
+     */
+    protected StorageControllerStackIndex stackIndex = new StorageControllerStackIndex();
+
+    private List<ItemStack> lastStacksToDisplay;
 
     private List<ItemStack> cachedStacksToDisplay;
     private String cachedSearchString;
+    private SortType cachedSortType;
+    private SortDirection cachedSortDirection;
+    /**
+     * The entries the current search filters, the position of the next entry to check, and the matches so far.
+     */
+    private List<StorageControllerStackIndex.Entry> searchSource;
+    private int searchPosition;
+    private List<StorageControllerStackIndex.Entry> searchResults;
 
     public StorageControllerGuiBase(T container, Inventory playerInventory, Component name) {
         super(container, playerInventory, name);
@@ -133,7 +150,7 @@ public abstract class StorageControllerGuiBase<T extends StorageControllerContai
 
         this.resetDisplayCaches();
 
-        OccultismPackets.sendToServer(new MessageRequestStacks());
+        OccultismPackets.sendToServer(new MessageRequestStacks(true));
     }
 
     //region Getter / Setter
@@ -194,9 +211,35 @@ public abstract class StorageControllerGuiBase<T extends StorageControllerContai
     @Override
     public void setStacks(List<ItemStack> stacks) {
         this.stacks = stacks;
+        this.stackIndex.setStacks(stacks);
         this.resetDisplayCaches();
     }
 
+    @Override
+    public long getStackVersion() {
+        return this.stackVersion;
+    }
+
+    @Override
+    public void setStackVersion(long version) {
+        this.stackVersion = version;
+    }
+
+    @Override
+    public void applyStackChanges(List<ItemStack> changedStacks, List<ItemStack> removedStacks) {
+        Map<ItemStackKey, ItemStack> stacksByKey = new LinkedHashMap<>();
+        for (ItemStack stack : this.stacks) {
+            stacksByKey.put(ItemStackKey.lookup(stack), stack);
+        }
+        for (ItemStack stack : removedStacks) {
+            stacksByKey.remove(ItemStackKey.lookup(stack));
+        }
+        for (ItemStack stack : changedStacks) {
+            stacksByKey.put(ItemStackKey.lookup(stack), stack);
+        }
+        this.setStacks(new ArrayList<>(stacksByKey.values()));
+    }
+
     @Override
     public void setUsedSlots(int slots) {
         this.usedSlots = slots;
@@ -556,14 +599,11 @@ public abstract class StorageControllerGuiBase<T extends StorageControllerContai
         var changedPage = this.previousPage != this.currentPage;
         this.previousPage = this.currentPage;
 
-        var changedStacksToDisplay = this.lastCachedStacksToDisplayCount != stacksToDisplay.size();
-        this.lastCachedStacksToDisplayCount = stacksToDisplay.size();
+        //the list is cached until the stacks, search or sorting change, so a new list means the slots are outdated
+        var changedStacksToDisplay = this.lastStacksToDisplay != stacksToDisplay;
+        this.lastStacksToDisplay = stacksToDisplay;
 
-        var changedStacks = this.lastStacksCount != this.stacks.size();
-        this.lastStacksCount = this.stacks.size();
-
-        if(changedPage || changedStacksToDisplay || changedStacks){
-            this.sortItemStacks(stacksToDisplay);
+        if(changedPage || changedStacksToDisplay){
             this.buildPage(stacksToDisplay);
             this.buildItemSlots(stacksToDisplay);
         }
@@ -728,56 +768,78 @@ public abstract class StorageControllerGuiBase<T extends StorageControllerContai
         }
     }
 
-    protected void sortItemStacks(List<ItemStack> stacksToDisplay) {
-        stacksToDisplay.sort(new Comparator<ItemStack>() {
-
-            final int direction = StorageControllerGuiBase.this.getSortDirection().isDown() ? -1 : 1;
-
-            @Override
-            public int compare(ItemStack a, ItemStack b) {
-                switch (StorageControllerGuiBase.this.getSortType()) {
-                    case AMOUNT:
-                        return Integer.compare(b.getCount(), a.getCount()) * this.direction;
-                    case NAME:
-                        return a.getDisplayName().getString()
-                                .compareToIgnoreCase(b.getDisplayName().getString()) *
-                                this.direction;
-                    case MOD:
-                        return TextUtil.getModNameForGameObject(a.getItem())
-                                .compareToIgnoreCase(TextUtil.getModNameForGameObject(b.getItem())) *
-                                this.direction;
-                }
-                return 0;
-            }
-
-        });
-    }
-
     protected void resetDisplayCaches(){
-        this.lastStacksCount = 0;
         this.cachedStacksToDisplay = null;
+        this.searchSource = null;
         this.previousPage = -1;
     }
 
+    /**
+     * Gets the stacks matching the current search in the current sort order.
+     * Filtering is spread over multiple frames if it exceeds {@link #SEARCH_BUDGET_NANOS}, the stacks found so far are returned meanwhile.
+     *
+     * @return the stacks to display, cached until the stacks, search or sorting change. Must not be modified.
+     */
     protected List<ItemStack> applySearchToItems() {
-        String searchText = this.searchBar.getValue();
+        String searchText = this.searchBar.getValue().toLowerCase();
+        SortType sortType = this.getSortType();
+        SortDirection sortDirection = this.getSortDirection();
 
-        if (!searchText.equals("")) {
-            if (this.cachedStacksToDisplay != null && this.cachedSearchString != null && this.cachedSearchString.equals(searchText))
-                return this.cachedStacksToDisplay;
+        if (this.searchSource == null || !searchText.equals(this.cachedSearchString) ||
+                sortType != this.cachedSortType || sortDirection != this.cachedSortDirection)
+            this.startSearch(searchText, sortType, sortDirection);
 
-            List<ItemStack> stacksToDisplay = new ArrayList<>();
-            for (ItemStack stack : this.stacks) {
-                if (this.itemMatchesSearch(stack))
-                    stacksToDisplay.add(stack);
-            }
+        if (this.searchPosition < this.searchSource.size())
+            this.continueSearch();
 
+        if (this.cachedStacksToDisplay == null) {
+            List<ItemStack> stacksToDisplay = new ArrayList<>(this.searchResults.size());
+            for (StorageControllerStackIndex.Entry entry : this.searchResults) {
+                stacksToDisplay.add(entry.getStack());
+            }
             this.cachedStacksToDisplay = stacksToDisplay;
-            this.cachedSearchString = searchText;
+        }
+        return this.cachedStacksToDisplay;
+    }
+
+    protected void startSearch(String searchText, SortType sortType, SortDirection sortDirection) {
+        List<StorageControllerStackIndex.Entry> source;
+        if (this.searchSource != null && this.cachedSearchString != null && searchText.startsWith(this.cachedSearchString) &&
+                sortType == this.cachedSortType && sortDirection == this.cachedSortDirection) {
+            //the new search text extends the previous one, so only previous matches and entries not checked yet can match.
+            //both are in sort order, and the unchecked entries all come after the previous matches.
+            source = new ArrayList<>(this.searchResults.size() + this.searchSource.size() - this.searchPosition);
+            source.addAll(this.searchResults);
+            source.addAll(this.searchSource.subList(this.searchPosition, this.searchSource.size()));
+        } else {
+            //filtering the sorted entries keeps the result sorted
+            source = this.stackIndex.getSorted(sortType, sortDirection);
+        }
+
+        this.searchSource = source;
+        this.searchPosition = 0;
+        this.searchResults = new ArrayList<>();
+        this.cachedStacksToDisplay = null;
+        this.cachedSearchString = searchText;
+        this.cachedSortType = sortType;
+        this.cachedSortDirection = sortDirection;
+    }
+
+    protected void continueSearch() {
+        long deadline = System.nanoTime() + SEARCH_BUDGET_NANOS;
+        int previousResults = this.searchResults.size();
+        while (this.searchPosition < this.searchSource.size()) {
+            StorageControllerStackIndex.Entry entry = this.searchSource.get(this.searchPosition++);
+            if (this.cachedSearchString.isEmpty() || this.itemMatchesSearch(entry, this.cachedSearchString))
+                this.searchResults.add(entry);
 
-            return stacksToDisplay;
+            //checking the time is not free, so only do it every few entries
+            if ((this.searchPosition & 63) == 0 && System.nanoTime() > deadline)
+                break;
         }
-        return new ArrayList<>(this.stacks);
+        //new matches were found, so the displayed stacks need to be rebuilt
+        if (this.searchResults.size() != previousResults)
+            this.cachedStacksToDisplay = null;
     }
 
     protected List<MachineReference> applySearchToMachines() {
@@ -795,28 +857,8 @@ public abstract class StorageControllerGuiBase<T extends StorageControllerContai
         return new ArrayList<>(this.linkedMachines);
     }
 
-    protected boolean itemMatchesSearch(ItemStack stack) {
-        String searchText = this.searchBar.getValue();
-        if (searchText.startsWith("@")) {
-            String name = TextUtil.getModNameForGameObject(stack.getItem());
-            return name.toLowerCase().contains(searchText.toLowerCase().substring(1));
-        } else if (searchText.startsWith("#")) {
-            List<String> tooltip = stack.getTooltipLines(this.minecraft.player, TooltipFlag.Default.NORMAL).stream()
-                    .map(Component::getString).collect(
-                            Collectors.toList());
-            String tooltipString = Joiner.on(' ').join(tooltip).toLowerCase().trim();
-            return tooltipString.toLowerCase().contains(searchText.toLowerCase().substring(1));
-        } else if (searchText.startsWith("$")) {
-            StringBuilder tagStringBuilder = new StringBuilder();
-            stack.getTags().forEach(
-                    tag -> tagStringBuilder.append(tag.location()).append(" ")
-            );
-            return tagStringBuilder.toString().toLowerCase().contains(searchText.toLowerCase().substring(1));
-        } else {
-            //Note: If search stops working, forge may have re-implemented .getUnformattedComponentText() for translated text components
-            return stack.getDisplayName().getString().toLowerCase()
-                    .contains(searchText.toLowerCase());
-        }
+    protected boolean itemMatchesSearch(StorageControllerStackIndex.Entry entry, String searchText) {
+        return entry.matches(searchText, this.minecraft.player);
     }
 
     protected boolean machineMatchesSearch(MachineReference machine) {
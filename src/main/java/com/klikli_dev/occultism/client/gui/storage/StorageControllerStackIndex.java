@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ *
+ * Copyright 2023 klikli-dev
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.klikli_dev.occultism.client.gui.storage;
+
+import com.google.common.base.Joiner;
+import com.klikli_dev.occultism.api.common.data.SortDirection;
+import com.klikli_dev.occultism.api.common.data.SortType;
+import com.klikli_dev.occultism.common.misc.ItemStackKey;
+import com.klikli_dev.occultism.util.TextUtil;
+import net.minecraft.network.chat.Component;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.TooltipFlag;
+
+import java.util.*;
+
+/**
+ * Client side index of the stacks shown in a storage controller gui.
+ * Precomputes the strings used for searching and sorting once per stack, so they are not rebuilt every frame.
+ * Entries are kept across updates for stacks whose item and nbt did not change.
+ */
+public class StorageControllerStackIndex {
+
+    protected List<Entry> entries = new ArrayList<>();
+    protected Map<ItemStackKey, Entry> entriesByKey = new HashMap<>();
+    protected List<Entry> sortedEntries;
+    protected SortType sortedType;
+    protected SortDirection sortedDirection;
+
+    //region Getter / Setter
+
+    public List<Entry> getEntries() {
+        return this.entries;
+    }
+
+    //endregion Getter / Setter
+
+    public void setStacks(List<ItemStack> stacks) {
+        Map<ItemStackKey, Entry> previousEntries = this.entriesByKey;
+        this.entries = new ArrayList<>(stacks.size());
+        this.entriesByKey = new HashMap<>(stacks.size());
+        for (ItemStack stack : stacks) {
+            //the gui owns the received stacks and does not modify them, so the key does not need to copy the nbt.
+            ItemStackKey key = ItemStackKey.lookup(stack);
+            Entry previous = previousEntries.get(key);
+            Entry entry = previous != null ? new Entry(stack, previous) : new Entry(stack);
+            this.entries.add(entry);
+            this.entriesByKey.put(key, entry);
+        }
+        this.sortedEntries = null;
+    }
+
+    /**
+     * Gets all entries in the given order, the sorted list is cached until the stacks or the order change.
+     *
+     * @param sortType      the sort type.
+     * @param sortDirection the sort direction.
+     * @return the sorted entries. Must not be modified.
+     */
+    public List<Entry> getSorted(SortType sortType, SortDirection sortDirection) {
+        if (this.sortedEntries == null || this.sortedType != sortType || this.sortedDirection != sortDirection) {
+            int direction = sortDirection.isDown() ? -1 : 1;
+            List<Entry> sorted = new ArrayList<>(this.entries);
+            switch (sortType) {
+                case AMOUNT -> sorted.sort((a, b) -> Integer.compare(b.getCount(), a.getCount()) * direction);
+                case NAME -> sorted.sort((a, b) -> a.displayName.compareToIgnoreCase(b.displayName) * direction);
+                case MOD -> sorted.sort((a, b) -> a.modName.compareToIgnoreCase(b.modName) * direction);
+            }
+            this.sortedEntries = sorted;
+            this.sortedType = sortType;
+            this.sortedDirection = sortDirection;
+        }
+        return this.sortedEntries;
+    }
+
+    public static class Entry {
+        protected final ItemStack stack;
+        protected final String displayName;
+        protected final String displayNameLowerCase;
+        protected final String modName;
+        protected final String modNameLowerCase;
+        protected final String tagsLowerCase;
+        protected String tooltipLowerCase;
+
+        public Entry(ItemStack stack) {
+            this.stack = stack;
+            //Note: If search stops working, forge may have re-implemented .getUnformattedComponentText() for translated text components
+            this.displayName = stack.getDisplayName().getString();
+            this.displayNameLowerCase = this.displayName.toLowerCase();
+            this.modName = TextUtil.getModNameForGameObject(stack.getItem());
+            this.modNameLowerCase = this.modName.toLowerCase();
+            StringBuilder tagStringBuilder = new StringBuilder();
+            stack.getTags().forEach(
+                    tag -> tagStringBuilder.append(tag.location()).append(" ")
+            );
+            this.tagsLowerCase = tagStringBuilder.toString().toLowerCase();
+        }
+
+        /**
+         * Creates an entry for an updated stack of the same item and nbt, re-using the cached strings.
+         */
+        public Entry(ItemStack stack, Entry previous) {
+            this.stack = stack;
+            this.displayName = previous.displayName;
+            this.displayNameLowerCase = previous.displayNameLowerCase;
+            this.modName = previous.modName;
+            this.modNameLowerCase = previous.modNameLowerCase;
+            this.tagsLowerCase = previous.tagsLowerCase;
+            this.tooltipLowerCase = previous.tooltipLowerCase;
+        }
+
+        //region Getter / Setter
+
+        public ItemStack getStack() {
+            return this.stack;
+        }
+
+        public int getCount() {
+            return this.stack.getCount();
+        }
+
+        public String getDisplayName() {
+            return this.displayName;
+        }
+
+        public String getModName() {
+            return this.modName;
+        }
+
+        /**
+         * Gets the tooltip text, built on first access as tooltips are expensive to create.
+         *
+         * @param player the player to build the tooltip for.
+         * @return the lower case tooltip text.
+         */
+        public String getTooltipLowerCase(Player player) {
+            if (this.tooltipLowerCase == null) {
+                List<String> tooltip = this.stack.getTooltipLines(player, TooltipFlag.Default.NORMAL).stream()
+                        .map(Component::getString).toList();
+                this.tooltipLowerCase = Joiner.on(' ').join(tooltip).toLowerCase().trim();
+            }
+            return this.tooltipLowerCase;
+        }
+
+        //endregion Getter / Setter
+
+        /**
+         * Checks if this entry matches the given search text.
+         * "@" searches the mod name, "#" the tooltip, "$" the tags and anything else the display name.
+         *
+         * @param searchText the lower case search text.
+         * @param player     the player to build tooltips for.
+         * @return true if the entry matches.
+         */
+        public boolean matches(String searchText, Player player) {
+            if (searchText.startsWith("@")) {
+                return this.modNameLowerCase.contains(searchText.substring(1));
+            } else if (searchText.startsWith("#")) {
+                return this.getTooltipLowerCase(player).contains(searchText.substring(1));
+            } else if (searchText.startsWith("$")) {
+                return this.tagsLowerCase.contains(searchText.substring(1));
+            } else {
+                return this.displayNameLowerCase.contains(searchText);
+            }
+        }
+    }
+}
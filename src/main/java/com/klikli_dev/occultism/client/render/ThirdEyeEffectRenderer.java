@@ -31,23 +31,34 @@ import com.mojang.blaze3d.platform.GlStateManager;
 import com.mojang.blaze3d.platform.Window;
 import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.blaze3d.vertex.*;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import net.minecraft.client.Minecraft;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.effect.MobEffectInstance;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
 import net.minecraftforge.client.event.ScreenEvent;
 import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class ThirdEyeEffectRenderer {
 
     public static final int MAX_THIRD_EYE_DISTANCE = 10;
+    /**
+     * How often the whole area is scanned, to pick up blocks that changed or were re-sent without the player moving.
+     */
+    public static final int FULL_SCAN_INTERVAL_TICKS = 10;
     public static final ResourceLocation THIRD_EYE_SHADER = new ResourceLocation(Occultism.MODID,
             "shaders/post/third_eye.json");
     public static final ResourceLocation THIRD_EYE_TEXTURE = new ResourceLocation(Occultism.MODID,
@@ -56,6 +67,12 @@ public class ThirdEyeEffectRenderer {
     public boolean gogglesActiveLastTick = false;
 
     public Set<BlockPos> uncoveredBlocks = new HashSet<>();
+    /**
+     * The player position of the last uncover, null if the next uncover needs to scan the whole area.
+     */
+    protected BlockPos lastOrigin;
+    protected OtherworldBlockTier lastTier;
+    protected long lastFullScanTime;
 
     @SubscribeEvent
     public void onPlayerTick(TickEvent.PlayerTickEvent event) {
@@ -110,35 +127,173 @@ public class ThirdEyeEffectRenderer {
      * @param clear true to delete the list of uncovered blocks.
      */
     public void resetUncoveredBlocks(Level level, boolean clear) {
+        Long2ObjectMap<List<BlockPos>> changes = new Long2ObjectOpenHashMap<>();
         for (BlockPos pos : this.uncoveredBlocks) {
             BlockState state = level.getBlockState(pos);
-            if (state.getBlock() instanceof IOtherworldBlock) //handle replaced or removed blocks gracefully
-                level.setBlock(pos, state.setValue(IOtherworldBlock.UNCOVERED, false), 1);
+            if (state.getBlock() instanceof IOtherworldBlock && state.getValue(IOtherworldBlock.UNCOVERED)) //handle replaced or removed blocks gracefully
+                changes.computeIfAbsent(SectionPos.asLong(pos), k -> new ArrayList<>()).add(pos);
         }
+        this.applyChanges(level, changes, false);
         if (clear)
             this.uncoveredBlocks.clear();
+
+        //blocks are covered now, so the next uncover needs to look at the whole area again
+        this.lastOrigin = null;
     }
 
     /**
      * Uncovers the otherworld blocks within MAX_THIRD_EYE_DISTANCE of the player.
+     * Only the area the player newly moved into is scanned each tick, with a periodic full scan to pick up blocks
+     * that were changed or re-sent by the server.
      *
      * @param player the player.
      * @param level  the level.
      */
     public void uncoverBlocks(Player player, Level level, OtherworldBlockTier tier) {
         BlockPos origin = player.blockPosition();
-        BlockPos.betweenClosed(origin.offset(-MAX_THIRD_EYE_DISTANCE, -MAX_THIRD_EYE_DISTANCE, -MAX_THIRD_EYE_DISTANCE),
-                origin.offset(MAX_THIRD_EYE_DISTANCE, MAX_THIRD_EYE_DISTANCE, MAX_THIRD_EYE_DISTANCE)).forEach(pos -> {
-            BlockState state = level.getBlockState(pos);
-            if (state.getBlock() instanceof IOtherworldBlock block) {
-                if (block.getTier().getLevel() <= tier.getLevel()) {
-                    if (!state.getValue(IOtherworldBlock.UNCOVERED)) {
-                        level.setBlock(pos, state.setValue(IOtherworldBlock.UNCOVERED, true), 1);
+        long time = level.getGameTime();
+        Long2ObjectMap<List<BlockPos>> changes = new Long2ObjectOpenHashMap<>();
+
+        if (this.lastOrigin == null || tier != this.lastTier || time - this.lastFullScanTime >= FULL_SCAN_INTERVAL_TICKS ||
+                origin.distManhattan(this.lastOrigin) > MAX_THIRD_EYE_DISTANCE) {
+            this.scanBox(level, tier, changes,
+                    origin.getX() - MAX_THIRD_EYE_DISTANCE, origin.getX() + MAX_THIRD_EYE_DISTANCE,
+                    origin.getY() - MAX_THIRD_EYE_DISTANCE, origin.getY() + MAX_THIRD_EYE_DISTANCE,
+                    origin.getZ() - MAX_THIRD_EYE_DISTANCE, origin.getZ() + MAX_THIRD_EYE_DISTANCE);
+            this.lastFullScanTime = time;
+        } else if (!origin.equals(this.lastOrigin)) {
+            this.scanEnteredArea(level, tier, changes, this.lastOrigin, origin);
+        }
+
+        this.applyChanges(level, changes, true);
+        this.lastOrigin = origin;
+        this.lastTier = tier;
+    }
+
+    /**
+     * Scans the part of the area around the new origin that was not in the area around the old origin.
+     * The difference of two equally sized boxes is split into up to three slabs, one per axis.
+     * Blocks in the area the player left stay uncovered until the effect ends, as before.
+     */
+    protected void scanEnteredArea(Level level, OtherworldBlockTier tier, Long2ObjectMap<List<BlockPos>> changes, BlockPos from, BlockPos to) {
+        int d = MAX_THIRD_EYE_DISTANCE;
+        int minX = to.getX() - d, maxX = to.getX() + d;
+        int minY = to.getY() - d, maxY = to.getY() + d;
+        int minZ = to.getZ() - d, maxZ = to.getZ() + d;
+
+        //x slab, then shrink x to the overlap with the old area
+        if (to.getX() > from.getX()) {
+            this.scanBox(level, tier, changes, from.getX() + d + 1, maxX, minY, maxY, minZ, maxZ);
+            maxX = from.getX() + d;
+        } else if (to.getX() < from.getX()) {
+            this.scanBox(level, tier, changes, minX, from.getX() - d - 1, minY, maxY, minZ, maxZ);
+            minX = from.getX() - d;
+        }
+
+        //y slab within the x overlap, then shrink y
+        if (to.getY() > from.getY()) {
+            this.scanBox(level, tier, changes, minX, maxX, from.getY() + d + 1, maxY, minZ, maxZ);
+            maxY = from.getY() + d;
+        } else if (to.getY() < from.getY()) {
+            this.scanBox(level, tier, changes, minX, maxX, minY, from.getY() - d - 1, minZ, maxZ);
+            minY = from.getY() - d;
+        }
+
+        //z slab within the x and y overlap
+        if (to.getZ() > from.getZ()) {
+            this.scanBox(level, tier, changes, minX, maxX, minY, maxY, from.getZ() + d + 1, maxZ);
+        } else if (to.getZ() < from.getZ()) {
+            this.scanBox(level, tier, changes, minX, maxX, minY, maxY, minZ, from.getZ() - d - 1);
+        }
+    }
+
+    /**
+     * Collects the covered otherworld blocks of the given tier in the box, skipping chunk sections whose palette contains no otherworld blocks.
+     */
+    protected void scanBox(Level level, OtherworldBlockTier tier, Long2ObjectMap<List<BlockPos>> changes,
+                           int minX, int maxX, int minY, int maxY, int minZ, int maxZ) {
+        minY = Math.max(minY, level.getMinBuildHeight());
+        maxY = Math.min(maxY, level.getMaxBuildHeight() - 1);
+        if (minX > maxX || minY > maxY || minZ > maxZ)
+            return;
+
+        for (int chunkX = SectionPos.blockToSectionCoord(minX); chunkX <= SectionPos.blockToSectionCoord(maxX); chunkX++) {
+            for (int chunkZ = SectionPos.blockToSectionCoord(minZ); chunkZ <= SectionPos.blockToSectionCoord(maxZ); chunkZ++) {
+                LevelChunk chunk = level.getChunkSource().getChunk(chunkX, chunkZ, false);
+                if (chunk == null)
+                    continue;
+
+                int fromX = Math.max(minX, SectionPos.sectionToBlockCoord(chunkX));
+                int toX = Math.min(maxX, SectionPos.sectionToBlockCoord(chunkX, 15));
+                int fromZ = Math.max(minZ, SectionPos.sectionToBlockCoord(chunkZ));
+                int toZ = Math.min(maxZ, SectionPos.sectionToBlockCoord(chunkZ, 15));
+
+                for (int sectionY = SectionPos.blockToSectionCoord(minY); sectionY <= SectionPos.blockToSectionCoord(maxY); sectionY++) {
+                    LevelChunkSection section = chunk.getSection(chunk.getSectionIndexFromSectionY(sectionY));
+                    if (section.hasOnlyAir() || !section.maybeHas(state -> state.getBlock() instanceof IOtherworldBlock))
+                        continue;
+
+                    int fromY = Math.max(minY, SectionPos.sectionToBlockCoord(sectionY));
+                    int toY = Math.min(maxY, SectionPos.sectionToBlockCoord(sectionY, 15));
+                    List<BlockPos> sectionChanges = null;
+                    for (int y = fromY; y <= toY; y++) {
+                        for (int z = fromZ; z <= toZ; z++) {
+                            for (int x = fromX; x <= toX; x++) {
+                                BlockState state = section.getBlockState(x & 15, y & 15, z & 15);
+                                if (state.getBlock() instanceof IOtherworldBlock block && block.getTier().getLevel() <= tier.getLevel()) {
+                                    BlockPos pos = new BlockPos(x, y, z);
+                                    if (!state.getValue(IOtherworldBlock.UNCOVERED)) {
+                                        if (sectionChanges == null)
+                                            sectionChanges = changes.computeIfAbsent(SectionPos.asLong(chunkX, sectionY, chunkZ), k -> new ArrayList<>());
+                                        sectionChanges.add(pos);
+                                    }
+                                    this.uncoveredBlocks.add(pos);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Flips the uncovered state of the given blocks, and re-meshes each affected section once instead of once per block.
+     * Neighbouring sections are only re-meshed if a changed block is on the shared edge, like a regular block update.
+     */
+    protected void applyChanges(Level level, Long2ObjectMap<List<BlockPos>> changes, boolean uncovered) {
+        for (Long2ObjectMap.Entry<List<BlockPos>> entry : changes.long2ObjectEntrySet()) {
+            long section = entry.getLongKey();
+            LevelChunk chunk = level.getChunkSource().getChunk(SectionPos.x(section), SectionPos.z(section), false);
+            if (chunk == null)
+                continue;
+
+            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+            for (BlockPos pos : entry.getValue()) {
+                BlockState state = chunk.getBlockState(pos);
+                if (state.getBlock() instanceof IOtherworldBlock) {
+                    chunk.setBlockState(pos, state.setValue(IOtherworldBlock.UNCOVERED, uncovered), false);
+                    minX = Math.min(minX, pos.getX());
+                    minY = Math.min(minY, pos.getY());
+                    minZ = Math.min(minZ, pos.getZ());
+                    maxX = Math.max(maxX, pos.getX());
+                    maxY = Math.max(maxY, pos.getY());
+                    maxZ = Math.max(maxZ, pos.getZ());
+                }
+            }
+            if (minX > maxX)
+                continue;
+
+            //the same sections a block update would dirty for each changed block: its own, and the neighbour if on the edge
+            for (int x = SectionPos.blockToSectionCoord(minX - 1); x <= SectionPos.blockToSectionCoord(maxX + 1); x++) {
+                for (int y = SectionPos.blockToSectionCoord(minY - 1); y <= SectionPos.blockToSectionCoord(maxY + 1); y++) {
+                    for (int z = SectionPos.blockToSectionCoord(minZ - 1); z <= SectionPos.blockToSectionCoord(maxZ + 1); z++) {
+                        Minecraft.getInstance().levelRenderer.setSectionDirty(x, y, z);
                     }
-                    this.uncoveredBlocks.add(pos.immutable());
                 }
             }
-        });
+        }
     }
 
     public void onThirdEyeTick(TickEvent.PlayerTickEvent event) {
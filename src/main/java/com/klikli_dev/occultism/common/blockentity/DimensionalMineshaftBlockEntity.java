@@ -22,11 +22,10 @@
 
 package com.klikli_dev.occultism.common.blockentity;
 
+import com.klikli_dev.occultism.Occultism;
 import com.klikli_dev.occultism.common.container.DimensionalMineshaftContainer;
-import com.klikli_dev.occultism.common.misc.WeightedOutputIngredient;
-import com.klikli_dev.occultism.crafting.recipe.MinerRecipe;
+import com.klikli_dev.occultism.crafting.recipe.MinerRecipeSampler;
 import com.klikli_dev.occultism.exceptions.ItemHandlerMissingException;
-import com.klikli_dev.occultism.registry.OccultismRecipes;
 import com.klikli_dev.occultism.registry.OccultismTiles;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
@@ -35,7 +34,6 @@ import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.chat.Component;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
-import net.minecraft.util.random.WeightedRandom;
 import net.minecraft.world.MenuProvider;
 import net.minecraft.world.entity.player.Inventory;
 import net.minecraft.world.entity.player.Player;
@@ -51,15 +49,10 @@ import net.minecraftforge.items.IItemHandler;
 import net.minecraftforge.items.ItemHandlerHelper;
 import net.minecraftforge.items.ItemStackHandler;
 import net.minecraftforge.items.wrapper.CombinedInvWrapper;
-import net.minecraftforge.items.wrapper.RecipeWrapper;
 import net.minecraftforge.registries.ForgeRegistries;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
 public class DimensionalMineshaftBlockEntity extends NetworkedBlockEntity implements MenuProvider {
 
@@ -68,6 +61,10 @@ public class DimensionalMineshaftBlockEntity extends NetworkedBlockEntity implem
     public static final int DEFAULT_MAX_MINING_TIME = 400;
     public static int DEFAULT_ROLLS_PER_OPERATION = 1;
     public static String ROLLS_PER_OPERATION_TAG = "rollsPerOperation";
+    /**
+     * The max operations to catch up on at once in deep throughput mode, e.g. after the chunk was unloaded for a long time.
+     */
+    public static final int MAX_CATCH_UP_OPERATIONS = 256;
     public LazyOptional<ItemStackHandler> inputHandler = LazyOptional.of(() -> new ItemStackHandler(1) {
 
         @Override
@@ -92,7 +89,11 @@ public class DimensionalMineshaftBlockEntity extends NetworkedBlockEntity implem
     public int maxMiningTime = 0;
     public int rollsPerOperation = 0;
     protected Item currentInputType;
-    protected List<WeightedOutputIngredient> possibleResults;
+    protected MinerRecipeSampler resultSampler;
+    /**
+     * The game time the current operation completes in deep throughput mode, 0 if idle.
+     */
+    protected long operationEndTime;
 
     public DimensionalMineshaftBlockEntity(BlockPos worldPos, BlockState state) {
         super(OccultismTiles.DIMENSIONAL_MINESHAFT.get(), worldPos, state);
@@ -140,17 +141,29 @@ public class DimensionalMineshaftBlockEntity extends NetworkedBlockEntity implem
         return super.getCapability(cap, direction);
     }
 
+    /**
+     * @return the remaining ticks of the current operation, 0 if idle.
+     */
+    public int getRemainingMiningTime() {
+        if (this.operationEndTime > 0 && this.level != null && !this.level.isClientSide)
+            return (int) Math.max(0, this.operationEndTime - this.level.getGameTime());
+        return this.miningTime;
+    }
+
     @Override
     public void load(CompoundTag compound) {
         super.load(compound);
         this.inputHandler.ifPresent((handler) -> handler.deserializeNBT(compound.getCompound("inputHandler")));
         this.outputHandler.ifPresent((handler) -> handler.deserializeNBT(compound.getCompound("outputHandler")));
+        this.operationEndTime = compound.getLong("operationEndTime");
     }
 
     @Override
     protected void saveAdditional(CompoundTag compound) {
         this.inputHandler.ifPresent(handler -> compound.put("inputHandler", handler.serializeNBT()));
         this.outputHandler.ifPresent(handler -> compound.put("outputHandler", handler.serializeNBT()));
+        if (this.operationEndTime > 0)
+            compound.putLong("operationEndTime", this.operationEndTime);
         super.saveAdditional(compound);
     }
 
@@ -163,7 +176,7 @@ public class DimensionalMineshaftBlockEntity extends NetworkedBlockEntity implem
 
     @Override
     public CompoundTag saveNetwork(CompoundTag compound) {
-        compound.putInt("miningTime", this.miningTime);
+        compound.putInt("miningTime", this.getRemainingMiningTime());
         compound.putInt("maxMiningTime", this.maxMiningTime);
         return super.saveNetwork(compound);
     }
@@ -180,11 +193,15 @@ public class DimensionalMineshaftBlockEntity extends NetworkedBlockEntity implem
             IItemHandler inputHandler = this.inputHandler.orElseThrow(ItemHandlerMissingException::new);
             ItemStack input = inputHandler.getStackInSlot(0);
 
+            if (Occultism.SERVER_CONFIG.dimensionalMineshaft.deepThroughputMode.get()) {
+                this.tickDeepThroughput(input);
+                return;
+            }
+            //in case deep throughput mode was turned off during an operation
+            this.operationEndTime = 0;
+
             //handle unusing enchantment from evilcraft, see https://github.com/klikli-dev/occultism/issues/909
-            if (input.getMaxDamage() - input.getDamageValue() < 6 &&
-                    input.isEnchanted() &&
-                    ForgeRegistries.ENCHANTMENTS.containsKey(EVILCRAFT_UNUSING_ENCHANTEMENT) &&
-                    input.getEnchantmentLevel(ForgeRegistries.ENCHANTMENTS.getValue(EVILCRAFT_UNUSING_ENCHANTEMENT)) > 0) {
+            if (this.isProtectedByUnusing(input)) {
                 this.miningTime = 0;
                 return;
             }
@@ -203,17 +220,13 @@ public class DimensionalMineshaftBlockEntity extends NetworkedBlockEntity implem
                     this.miningTime = 0;
 
                     //if the item was used up or switched, we also delete our result cache
-                    this.possibleResults = null;
+                    this.resultSampler = null;
                 }
                 if (this.miningTime % 10 == 0)
                     dirty = true;
             } else if (!input.isEmpty()) {
                 //if we're done with the last mining job, and we have valid input, start the next one.
-                this.currentInputType = input.getItem();
-                //ensure nbt is initialized, fixes issues with spawned miner spirits
-                forceInitStackNBT(input, (ServerLevel) this.level);
-                this.maxMiningTime = getMaxMiningTime(input);
-                this.rollsPerOperation = getRollsPerOperation(input);
+                this.startOperation(input);
                 this.miningTime = this.maxMiningTime;
                 dirty = true;
             }
@@ -229,6 +242,91 @@ public class DimensionalMineshaftBlockEntity extends NetworkedBlockEntity implem
         }
     }
 
+    /**
+     * Deep throughput mode: the completion time is computed from game time, so the idle tick is a single comparison.
+     * Clients are only updated when mining starts or stops, the progress bar is synced via container data.
+     *
+     * @param input the current input stack.
+     */
+    protected void tickDeepThroughput(ItemStack input) {
+        long time = this.level.getGameTime();
+
+        if (this.operationEndTime <= 0) {
+            //if we're done with the last mining job, and we have valid input, start the next one.
+            if (!input.isEmpty() && !this.isProtectedByUnusing(input)) {
+                this.startOperation(input);
+                if (this.maxMiningTime <= 0)
+                    return;
+                this.operationEndTime = time + this.maxMiningTime;
+                this.miningTime = this.maxMiningTime;
+                this.markNetworkDirty();
+            }
+            return;
+        }
+
+        if (input.getItem() != this.currentInputType) {
+            if (this.currentInputType == null && !input.isEmpty()) {
+                //we were reloaded with an operation in progress, resume it.
+                this.startOperation(input);
+            }
+            if (input.getItem() != this.currentInputType || this.maxMiningTime <= 0) {
+                //If the item was removed manually or consumed, stop and set up for starting the next operation in the next tick
+                this.stopDeepThroughputOperation();
+                return;
+            }
+        }
+
+        if (time < this.operationEndTime)
+            return;
+
+        if (this.isProtectedByUnusing(input)) {
+            this.stopDeepThroughputOperation();
+            return;
+        }
+
+        //complete the current operation, and any we missed while our chunk was unloaded
+        long missedOperations = (time - this.operationEndTime) / this.maxMiningTime;
+        int operations = (int) Math.min(1 + missedOperations, MAX_CATCH_UP_OPERATIONS);
+        for (int i = 0; i < operations; i++) {
+            this.mine();
+
+            input = this.inputHandler.orElseThrow(ItemHandlerMissingException::new).getStackInSlot(0);
+            if (input.getItem() != this.currentInputType || this.isProtectedByUnusing(input)) {
+                this.stopDeepThroughputOperation();
+                return;
+            }
+        }
+
+        this.operationEndTime = operations > missedOperations ?
+                this.operationEndTime + (long) operations * this.maxMiningTime :
+                time + this.maxMiningTime; //we hit the catch up limit, do not try to catch up the remainder
+    }
+
+    protected void stopDeepThroughputOperation() {
+        this.operationEndTime = 0;
+        this.miningTime = 0;
+        //if the item was used up or switched, we also delete our result cache
+        this.resultSampler = null;
+        this.currentInputType = null;
+        this.markNetworkDirty();
+    }
+
+    protected void startOperation(ItemStack input) {
+        this.currentInputType = input.getItem();
+        //ensure nbt is initialized, fixes issues with spawned miner spirits
+        forceInitStackNBT(input, (ServerLevel) this.level);
+        this.maxMiningTime = getMaxMiningTime(input);
+        this.rollsPerOperation = getRollsPerOperation(input);
+    }
+
+    protected boolean isProtectedByUnusing(ItemStack input) {
+        //handle unusing enchantment from evilcraft, see https://github.com/klikli-dev/occultism/issues/909
+        return input.getMaxDamage() - input.getDamageValue() < 6 &&
+                input.isEnchanted() &&
+                ForgeRegistries.ENCHANTMENTS.containsKey(EVILCRAFT_UNUSING_ENCHANTEMENT) &&
+                input.getEnchantmentLevel(ForgeRegistries.ENCHANTMENTS.getValue(EVILCRAFT_UNUSING_ENCHANTEMENT)) > 0;
+    }
+
     @Nullable
     @Override
     public AbstractContainerMenu createMenu(int id, Inventory playerInventory, Player player) {
@@ -240,29 +338,21 @@ public class DimensionalMineshaftBlockEntity extends NetworkedBlockEntity implem
         ItemStackHandler inputHandler = this.inputHandler.orElseThrow(ItemHandlerMissingException::new);
         ItemStackHandler outputHandler = this.outputHandler.orElseThrow(ItemHandlerMissingException::new);
 
-        if (this.possibleResults == null) {
-            List<MinerRecipe> recipes = this.level.getRecipeManager()
-                    .getRecipesFor(OccultismRecipes.MINER_TYPE.get(),
-                            new RecipeWrapper(inputHandler), this.level);
-            if (recipes == null || recipes.size() == 0) {
-                this.possibleResults = new ArrayList<>();
-            } else {
-                this.possibleResults = recipes.stream().map(r -> r.getWeightedOutput()).collect(Collectors.toList());
-            }
+        if (this.resultSampler == null) {
+            this.resultSampler = MinerRecipeSampler.get(this.level, inputHandler.getStackInSlot(0));
         }
 
-        if (this.possibleResults.size() == 0)
+        if (this.resultSampler.isEmpty())
             return;
 
-        for (int i = 0; i < this.rollsPerOperation; i++) {
-            Optional<WeightedOutputIngredient> result = WeightedRandom.getRandomItem(this.level.random, this.possibleResults);
+        //roll all at once, so we insert once per distinct result instead of once per roll
+        this.resultSampler.sample(this.level.random, this.rollsPerOperation).forEach((result, count) -> {
             //Important: copy the result, don't use it raw!
-            result.ifPresent(r -> {
-                ItemHandlerHelper.insertItemStacked(outputHandler, r.getStack().copy(), false);
-            });
+            ItemStack stack = result.getStack();
+            ItemHandlerHelper.insertItemStacked(outputHandler, stack.copyWithCount(stack.getCount() * count), false);
             //If there is no space, we simply continue. The otherworld miner spirit keeps working,
             // but the miner block entity simply discards the results
-        }
+        });
 
         //damage and eventually consume item.
         ItemStack input = inputHandler.getStackInSlot(0);
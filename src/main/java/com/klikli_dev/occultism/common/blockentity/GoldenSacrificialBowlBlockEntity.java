@@ -28,11 +28,13 @@ import com.klikli_dev.modonomicon.api.multiblock.Multiblock.SimulateResult;
 import com.klikli_dev.occultism.Occultism;
 import com.klikli_dev.occultism.common.item.DummyTooltipItem;
 import com.klikli_dev.occultism.common.item.spirit.BookOfBindingItem;
+import com.klikli_dev.occultism.common.ritual.PentacleValidationCache;
+import com.klikli_dev.occultism.common.ritual.RitualEventDispatcher;
 import com.klikli_dev.occultism.common.ritual.Ritual;
 import com.klikli_dev.occultism.crafting.recipe.RitualRecipe;
+import com.klikli_dev.occultism.crafting.recipe.RitualRecipeIndex;
 import com.klikli_dev.occultism.exceptions.ItemHandlerMissingException;
 import com.klikli_dev.occultism.registry.OccultismParticles;
-import com.klikli_dev.occultism.registry.OccultismRecipes;
 import com.klikli_dev.occultism.registry.OccultismTiles;
 import com.klikli_dev.occultism.util.EntityUtil;
 import com.mojang.datafixers.util.Pair;
@@ -60,13 +62,11 @@ import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.Rotation;
 import net.minecraft.world.level.block.state.BlockState;
-import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.common.capabilities.Capability;
 import net.minecraftforge.common.capabilities.ForgeCapabilities;
 import net.minecraftforge.common.util.LazyOptional;
 import net.minecraftforge.event.entity.living.LivingDeathEvent;
 import net.minecraftforge.event.entity.player.PlayerInteractEvent;
-import net.minecraftforge.event.entity.player.PlayerInteractEvent.RightClickItem;
 import net.minecraftforge.items.IItemHandler;
 import net.minecraftforge.items.ItemStackHandler;
 import org.jetbrains.annotations.NotNull;
@@ -75,7 +75,6 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.*;
 import java.util.Map.Entry;
-import java.util.function.Consumer;
 
 public class GoldenSacrificialBowlBlockEntity extends SacrificialBowlBlockEntity {
 
@@ -89,16 +88,15 @@ public class GoldenSacrificialBowlBlockEntity extends SacrificialBowlBlockEntity
     public boolean itemUseProvided;
     public int currentTime;
 
-    public Consumer<RightClickItem> rightClickItemListener;
-    public Consumer<LivingDeathEvent> livingDeathEventListener;
+    /**
+     * Remembers the validated pentacle while a ritual runs, invalidated by block changes in the pentacle.
+     */
+    protected PentacleValidationCache pentacleValidationCache = new PentacleValidationCache();
 
 
     public GoldenSacrificialBowlBlockEntity(BlockPos worldPos, BlockState state) {
         super(OccultismTiles.GOLDEN_SACRIFICIAL_BOWL.get(), worldPos, state);
 
-        this.rightClickItemListener = this::onPlayerRightClickItem;
-        this.livingDeathEventListener = this::onLivingDeath;
-
         this.itemStackHandler = new ItemStackHandler(1) {
 
             private ItemStack handleDummyInsert(int slot, @NotNull ItemStack stack, boolean simulate){
@@ -122,9 +120,8 @@ public class GoldenSacrificialBowlBlockEntity extends SacrificialBowlBlockEntity
                 if (GoldenSacrificialBowlBlockEntity.this.getCurrentRitualRecipe() != null)
                     return stack;
 
-                var ritualRecipe = GoldenSacrificialBowlBlockEntity.this.level.getRecipeManager().getAllRecipesFor(OccultismRecipes.RITUAL_TYPE.get()).stream().filter(
-                        r -> r.matches(GoldenSacrificialBowlBlockEntity.this.level, GoldenSacrificialBowlBlockEntity.this.getBlockPos(), stack)
-                ).findFirst().orElse(null);
+                var ritualRecipe = RitualRecipeIndex.findRecipe(GoldenSacrificialBowlBlockEntity.this.level,
+                        GoldenSacrificialBowlBlockEntity.this.getBlockPos(), stack, new HashMap<>());
 
                 if (ritualRecipe == null)
                     return stack;
@@ -164,8 +161,8 @@ public class GoldenSacrificialBowlBlockEntity extends SacrificialBowlBlockEntity
         Map<BlockPos, Block> pentacleDiff = null;
         Map<BlockPos, Block> bestPentacleDiff = null;
 
-        var pentacleMultiblocks = level.getRecipeManager().getAllRecipesFor(OccultismRecipes.RITUAL_TYPE.get())
-                .stream().map(RitualRecipe::getPentacleId).distinct().map(ModonomiconAPI.get()::getMultiblock).toList();
+        var pentacleMultiblocks = RitualRecipeIndex.get(level).getPentacleIds()
+                .stream().map(ModonomiconAPI.get()::getMultiblock).toList();
 
         Multiblock bestMatch = null;
         for (var pentacle : pentacleMultiblocks) {
@@ -206,23 +203,23 @@ public class GoldenSacrificialBowlBlockEntity extends SacrificialBowlBlockEntity
     }
 
     // If we find ritual with ingredients that almost matches bowls, then print help
-    private static boolean helpWithRitual(Level level, BlockPos pos, Player player, ItemStack activationItem) {
+    private static boolean helpWithRitual(Level level, BlockPos pos, Player player, ItemStack activationItem,
+                                          Map<ResourceLocation, Boolean> validatedPentacles) {
         List<Ingredient> ritualDiff = null;
         List<Ingredient> bestRitualDiff = null;
         RitualRecipe bestRitual = null;
 
-        var pentacleMultiblocks = level.getRecipeManager().getAllRecipesFor(OccultismRecipes.RITUAL_TYPE.get())
-                .stream().map(RitualRecipe::getPentacleId).distinct().map(ModonomiconAPI.get()::getMultiblock);
-
-        var pentacle = pentacleMultiblocks.filter(p -> p.validate(level, pos) != null).findFirst();
+        RitualRecipeIndex index = RitualRecipeIndex.get(level);
+        var pentacle = index.getPentacleIds().stream().filter(id -> validatedPentacles.computeIfAbsent(id, p -> {
+            Multiblock multiblock = ModonomiconAPI.get().getMultiblock(p);
+            return multiblock != null && multiblock.validate(level, pos) != null;
+        })).findFirst();
 
         if (pentacle.isEmpty())
             return false;
 
 
-        for (RitualRecipe recipe : level.getRecipeManager().getAllRecipesFor(OccultismRecipes.RITUAL_TYPE.get())) {
-            if (recipe.getPentacle() != pentacle.orElseThrow())
-                continue;
+        for (RitualRecipe recipe : index.getRecipesForPentacle(pentacle.orElseThrow())) {
 
             ritualDiff = new ArrayList<>(recipe.getIngredients());
             List<ItemStack> items = recipe.getRitual().getItemsOnSacrificialBowls(level, pos);
@@ -303,8 +300,7 @@ public class GoldenSacrificialBowlBlockEntity extends SacrificialBowlBlockEntity
                 Optional<? extends Recipe<?>> recipe = this.level.getRecipeManager().byKey(this.currentRitualRecipeId);
                 recipe.map(r -> (RitualRecipe) r).ifPresent(r -> this.currentRitualRecipe = r);
 
-                MinecraftForge.EVENT_BUS.addListener(this.rightClickItemListener);
-                MinecraftForge.EVENT_BUS.addListener(this.livingDeathEventListener);
+                RitualEventDispatcher.register(this);
 
                 this.currentRitualRecipeId = null;
             }
@@ -312,6 +308,16 @@ public class GoldenSacrificialBowlBlockEntity extends SacrificialBowlBlockEntity
         return this.currentRitualRecipe;
     }
 
+    /**
+     * Checks if the given pentacle is built around this bowl. The result is cached until a block of the pentacle changes.
+     *
+     * @param pentacle the pentacle to check.
+     * @return true if the pentacle is valid.
+     */
+    public boolean isPentacleValid(Multiblock pentacle) {
+        return this.pentacleValidationCache.isValid(this.level, this.getBlockPos(), pentacle);
+    }
+
     public int getSignal(BlockState pBlockState, BlockGetter pBlockAccess, BlockPos pPos, Direction pSide) {
         if(this.getCurrentRitualRecipe() == null)
             return 0;
@@ -432,9 +438,9 @@ public class GoldenSacrificialBowlBlockEntity extends SacrificialBowlBlockEntity
             if (this.getCurrentRitualRecipe() == null) {
                 //Identify the ritual in the ritual registry.
 
-                RitualRecipe ritualRecipe = this.level.getRecipeManager().getAllRecipesFor(OccultismRecipes.RITUAL_TYPE.get()).stream().filter(
-                        r -> r.matches(level, pos, activationItem)
-                ).findFirst().orElse(null);
+                //pentacle validation results are shared between all candidate recipes and the help messages below.
+                Map<ResourceLocation, Boolean> validatedPentacles = new HashMap<>();
+                RitualRecipe ritualRecipe = RitualRecipeIndex.findRecipe(level, pos, activationItem, validatedPentacles);
 
                 if (ritualRecipe != null) {
                     if (ritualRecipe.getRitual().isValid(level, pos, this, serverPlayer, activationItem,
@@ -454,7 +460,7 @@ public class GoldenSacrificialBowlBlockEntity extends SacrificialBowlBlockEntity
                                 false);
                     } else {
                         if (!helpWithPentacle(level, pos, serverPlayer)) {
-                            if (!helpWithRitual(level, pos, serverPlayer, activationItem)) {
+                            if (!helpWithRitual(level, pos, serverPlayer, activationItem, validatedPentacles)) {
                                 serverPlayer.displayClientMessage(
                                         Component.translatable(String.format("ritual.%s.does_not_exist", Occultism.MODID)),
                                         false);
@@ -482,8 +488,7 @@ public class GoldenSacrificialBowlBlockEntity extends SacrificialBowlBlockEntity
             this.remainingAdditionalIngredients = new ArrayList<>(this.currentRitualRecipe.getIngredients());
             this.currentRitualRecipe.getRitual().start(this.level, this.getBlockPos(), this, player, this.itemStackHandler.getStackInSlot(0));
 
-            MinecraftForge.EVENT_BUS.addListener(this.rightClickItemListener);
-            MinecraftForge.EVENT_BUS.addListener(this.livingDeathEventListener);
+            RitualEventDispatcher.register(this);
 
             this.setChanged();
             this.markNetworkDirty();
@@ -517,9 +522,9 @@ public class GoldenSacrificialBowlBlockEntity extends SacrificialBowlBlockEntity
             if (this.remainingAdditionalIngredients != null)
                 this.remainingAdditionalIngredients.clear();
             this.consumedIngredients.clear();
+            this.pentacleValidationCache.invalidate();
 
-            MinecraftForge.EVENT_BUS.unregister(this.rightClickItemListener);
-            MinecraftForge.EVENT_BUS.unregister(this.livingDeathEventListener);
+            RitualEventDispatcher.unregister(this);
 
             this.setChanged();
             this.markNetworkDirty();
@@ -579,6 +584,20 @@ public class GoldenSacrificialBowlBlockEntity extends SacrificialBowlBlockEntity
         }
     }
 
+    @Override
+    public void setRemoved() {
+        this.pentacleValidationCache.invalidate();
+        RitualEventDispatcher.unregister(this);
+        super.setRemoved();
+    }
+
+    @Override
+    public void onChunkUnloaded() {
+        this.pentacleValidationCache.invalidate();
+        RitualEventDispatcher.unregister(this);
+        super.onChunkUnloaded();
+    }
+
     protected void restoreRemainingAdditionalIngredients() {
         if (this.level == null) {
             //this sets the signal that loading didn't go right -> will reattempt during tick()
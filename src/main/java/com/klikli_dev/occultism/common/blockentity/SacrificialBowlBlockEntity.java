@@ -22,6 +22,7 @@
 
 package com.klikli_dev.occultism.common.blockentity;
 
+import com.klikli_dev.occultism.common.ritual.SacrificialBowlRegistry;
 import com.klikli_dev.occultism.registry.OccultismTiles;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
@@ -71,6 +72,28 @@ public class SacrificialBowlBlockEntity extends NetworkedBlockEntity {
         super(BlockEntityTypeIn, worldPos, state);
     }
 
+    @Override
+    public void onLoad() {
+        super.onLoad();
+        //the registry is only used on the server, client block entities would otherwise share the static map
+        if (!this.level.isClientSide)
+            SacrificialBowlRegistry.register(this.level, this);
+    }
+
+    @Override
+    public void setRemoved() {
+        if (!this.level.isClientSide)
+            SacrificialBowlRegistry.unregister(this.level, this);
+        super.setRemoved();
+    }
+
+    @Override
+    public void onChunkUnloaded() {
+        if (!this.level.isClientSide)
+            SacrificialBowlRegistry.unregister(this.level, this);
+        super.onChunkUnloaded();
+    }
+
     @Nonnull
     @Override
     public <T> LazyOptional<T> getCapability(@Nonnull Capability<T> cap, @Nullable Direction direction) {
@@ -30,6 +30,7 @@ import com.klikli_dev.occultism.api.common.data.SortDirection;
 import com.klikli_dev.occultism.api.common.data.SortType;
 import com.klikli_dev.occultism.common.block.storage.StableWormholeBlock;
 import com.klikli_dev.occultism.common.container.storage.StableWormholeContainer;
+import com.klikli_dev.occultism.common.misc.StorageControllerProxyRegistry;
 import com.klikli_dev.occultism.registry.OccultismTiles;
 import com.klikli_dev.occultism.util.BlockEntityUtil;
 import net.minecraft.core.BlockPos;
@@ -127,6 +128,7 @@ public class StableWormholeBlockEntity extends NetworkedBlockEntity implements I
                 //if we are on logical client it simply means we are out of render range, so we do not reset the pos
                 //resetting it would cause issues with e.g. stable wormhole
                 this.linkedStorageControllerPosition = null;
+                this.updateProxyRegistration();
                 this.level.setBlock(this.getBlockPos(), this.getBlockState().setValue(StableWormholeBlock.LINKED, false), 2);
             }
         }
@@ -141,6 +143,33 @@ public class StableWormholeBlockEntity extends NetworkedBlockEntity implements I
     @Override
     public void setLinkedStorageControllerPosition(GlobalBlockPos blockPos) {
         this.linkedStorageControllerPosition = blockPos;
+        this.updateProxyRegistration();
+    }
+
+    @Override
+    public void onLoad() {
+        super.onLoad();
+        this.updateProxyRegistration();
+    }
+
+    @Override
+    public void setRemoved() {
+        super.setRemoved();
+        if (this.level != null && !this.level.isClientSide)
+            StorageControllerProxyRegistry.unregister(this.level, this);
+    }
+
+    @Override
+    public void onChunkUnloaded() {
+        super.onChunkUnloaded();
+        if (this.level != null && !this.level.isClientSide)
+            StorageControllerProxyRegistry.unregister(this.level, this);
+    }
+
+    protected void updateProxyRegistration() {
+        //the registry is only used by spirits, so the client does not need it.
+        if (this.level != null && !this.level.isClientSide && !this.isRemoved())
+            StorageControllerProxyRegistry.register(this.level, this);
     }
 
     @Nonnull
@@ -160,6 +189,7 @@ public class StableWormholeBlockEntity extends NetworkedBlockEntity implements I
         if (compound.contains("linkedStorageControllerPosition"))
             this.linkedStorageControllerPosition = GlobalBlockPos.from(compound.getCompound(
                     "linkedStorageControllerPosition"));
+        this.updateProxyRegistration();
 
         this.setSortDirection(SortDirection.get(compound.getInt("sortDirection")));
         this.setSortType(SortType.get(compound.getInt("sortType")));
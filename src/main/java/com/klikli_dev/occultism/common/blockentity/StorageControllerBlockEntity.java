@@ -28,6 +28,7 @@ import com.klikli_dev.occultism.api.common.blockentity.IStorageAccessor;
 import com.klikli_dev.occultism.api.common.blockentity.IStorageController;
 import com.klikli_dev.occultism.api.common.blockentity.IStorageControllerProxy;
 import com.klikli_dev.occultism.api.common.container.IItemStackComparator;
+import com.klikli_dev.occultism.api.common.container.IStorageControllerContainer;
 import com.klikli_dev.occultism.api.common.data.GlobalBlockPos;
 import com.klikli_dev.occultism.api.common.data.MachineReference;
 import com.klikli_dev.occultism.api.common.data.SortDirection;
@@ -38,8 +39,13 @@ import com.klikli_dev.occultism.common.entity.job.ManageMachineJob;
 import com.klikli_dev.occultism.common.entity.spirit.SpiritEntity;
 import com.klikli_dev.occultism.common.misc.DepositOrder;
 import com.klikli_dev.occultism.common.misc.ItemStackComparator;
+import com.klikli_dev.occultism.common.misc.ItemStackKey;
+import com.klikli_dev.occultism.common.misc.StorageControllerItemIndex;
 import com.klikli_dev.occultism.common.misc.StorageControllerItemStackHandler;
+import com.klikli_dev.occultism.common.misc.StorageControllerProxyRegistry;
+import com.klikli_dev.occultism.common.misc.StorageControllerUpdateBroadcaster;
 import com.klikli_dev.occultism.network.MessageUpdateStacks;
+import com.klikli_dev.occultism.network.MessageUpdateStacksDelta;
 import com.klikli_dev.occultism.registry.OccultismBlocks;
 import com.klikli_dev.occultism.registry.OccultismItems;
 import com.klikli_dev.occultism.registry.OccultismTiles;
@@ -56,7 +62,6 @@ import net.minecraft.world.entity.player.Inventory;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.inventory.AbstractContainerMenu;
 import net.minecraft.world.item.BlockItem;
-import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.DirectionalBlock;
@@ -64,7 +69,6 @@ import net.minecraft.world.level.block.state.BlockState;
 import net.minecraftforge.common.capabilities.Capability;
 import net.minecraftforge.common.capabilities.ForgeCapabilities;
 import net.minecraftforge.common.util.LazyOptional;
-import net.minecraftforge.items.ItemHandlerHelper;
 import net.minecraftforge.items.ItemStackHandler;
 import net.minecraftforge.registries.ForgeRegistries;
 import net.minecraftforge.registries.RegistryObject;
@@ -80,6 +84,7 @@ import software.bernie.geckolib.util.GeckoLibUtil;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -87,6 +92,10 @@ import java.util.stream.Stream;
 public class StorageControllerBlockEntity extends NetworkedBlockEntity implements MenuProvider, IStorageController, IStorageAccessor, IStorageControllerProxy, GeoBlockEntity {
 
     public static final int MAX_STABILIZER_DISTANCE = 5;
+    /**
+     * If more item types than this changed since the last sync, a full (compressed) snapshot is sent instead.
+     */
+    public static final int MAX_DELTA_STACKS = 512;
 
     protected static final List<RegistryObject<? extends Block>> BLOCK_BLACKLIST = Stream.of(
             OccultismBlocks.STORAGE_CONTROLLER).collect(Collectors.toList());
@@ -97,17 +106,27 @@ public class StorageControllerBlockEntity extends NetworkedBlockEntity implement
     public Map<GlobalBlockPos, UUID> depositOrderSpirits = new HashMap<>();
     protected SortDirection sortDirection = SortDirection.DOWN;
     protected SortType sortType = SortType.AMOUNT;
-    protected ItemStackHandler itemStackHandlerInternal = new StorageControllerItemStackHandler(this,
+    protected StorageControllerItemStackHandler itemStackHandlerInternal = new StorageControllerItemStackHandler(this,
             Occultism.SERVER_CONFIG.storage.controllerBaseSlots.get(),
             Occultism.SERVER_CONFIG.storage.controllerStackSize.get(),
-            Occultism.SERVER_CONFIG.storage.overrideItemStackSizes.get()
+            Occultism.SERVER_CONFIG.storage.overrideItemStackSizes.get(),
+            Occultism.SERVER_CONFIG.storage.virtualStorage.get()
     );
     protected LazyOptional<ItemStackHandler> itemStackHandler = LazyOptional.of(() -> this.itemStackHandlerInternal);
     protected int maxSlots = Occultism.SERVER_CONFIG.storage.controllerBaseSlots.get();
-    protected int usedSlots = 0;
     protected boolean stabilizersInitialized = false;
     protected GlobalBlockPos globalPos;
-    protected MessageUpdateStacks cachedMessageUpdateStacks;
+    protected CompletableFuture<MessageUpdateStacks> cachedMessageUpdateStacks;
+    protected long cachedMessageUpdateStacksVersion = -1;
+    /**
+     * Delta messages by base version, shared between viewers. Only valid for {@link #cachedDeltasVersion}.
+     */
+    protected Map<Long, MessageUpdateStacksDelta> cachedDeltas = new HashMap<>();
+    protected long cachedDeltasVersion = -1;
+    /**
+     * Open containers showing this controller, weak so containers that were never properly closed do not leak.
+     */
+    protected Set<IStorageControllerContainer> viewers = Collections.newSetFromMap(new WeakHashMap<>());
 
     public StorageControllerBlockEntity(BlockPos worldPos, BlockState state) {
         super(OccultismTiles.STORAGE_CONTROLLER.get(), worldPos, state);
@@ -165,39 +184,11 @@ public class StorageControllerBlockEntity extends NetworkedBlockEntity implement
         return 0;
     }
 
-    protected void mergeIntoList(List<ItemStack> list, ItemStack stackToAdd) {
-        boolean merged = false;
-        for (ItemStack stack : list) {
-            if (ItemHandlerHelper.canItemStacksStack(stackToAdd, stack)) {
-                stack.setCount(stack.getCount() + stackToAdd.getCount());
-                merged = true;
-                break;
-            }
-        }
-        if (!merged) {
-            list.add(stackToAdd);
-        }
-    }
-
     protected void validateLinkedMachines() {
         // remove all entries that lead to invalid block entities.
         this.linkedMachines.entrySet().removeIf(entry -> !entry.getValue().isValidFor(this.level));
     }
 
-    private List<Predicate<ItemStack>> getComparatorsSortedByAmount(Predicate<ItemStack> comparator) {
-        var handler = this.itemStackHandlerInternal;
-        var map = new HashMap<Item, Integer>();
-        for (int i = 0; i < handler.getSlots(); i++) {
-            var getStackInSlot = handler.getStackInSlot(i);
-            if (comparator.test(getStackInSlot)) {
-                var oldCount = map.getOrDefault(getStackInSlot.getItem(), 0);
-                map.put(getStackInSlot.getItem(), oldCount + getStackInSlot.getCount());
-            }
-        }
-        return map.entrySet().stream().sorted((a, b) -> b.getValue().compareTo(a.getValue()))
-                .map(entry -> (Predicate<ItemStack>) stack -> stack.getItem() == entry.getKey()).toList();
-    }
-
     private <E extends GeoBlockEntity> PlayState predicate(AnimationState<E> event) {
         event.getController().setAnimation(RawAnimation.begin()
                 .thenLoop("animation.dimensional_matrix.new"));
@@ -263,30 +254,71 @@ public class StorageControllerBlockEntity extends NetworkedBlockEntity implement
 
     @Override
     public List<ItemStack> getStacks() {
-        ItemStackHandler handler = this.itemStackHandlerInternal;
-        int size = handler.getSlots();
-        int usedSlots = 0;
-        List<ItemStack> result = new ArrayList<>(size);
-        for (int slot = 0; slot < size; slot++) {
-            ItemStack stack = handler.getStackInSlot(slot);
-            if (!stack.isEmpty()) {
-                usedSlots++;
-                this.mergeIntoList(result, stack.copy());
-            }
+        Collection<StorageControllerItemIndex.Entry> entries = this.itemStackHandlerInternal.getIndex().getEntries();
+        List<ItemStack> result = new ArrayList<>(entries.size());
+        for (StorageControllerItemIndex.Entry entry : entries) {
+            result.add(entry.createStack());
         }
-        this.usedSlots = usedSlots;
         return result;
     }
 
     @Override
-    public MessageUpdateStacks getMessageUpdateStacks() {
-        if (this.cachedMessageUpdateStacks == null) {
+    public CompletableFuture<MessageUpdateStacks> getMessageUpdateStacks() {
+        //the aggregate is always up to date, so the message only needs to be rebuilt if the stacks changed since.
+        if (this.cachedMessageUpdateStacks == null ||
+                this.cachedMessageUpdateStacks.isCompletedExceptionally() ||
+                this.cachedMessageUpdateStacksVersion != this.getStackVersion()) {
+            //getStacks creates independent copies, so they can safely be serialized on another thread
             List<ItemStack> stacks = this.getStacks();
-            this.cachedMessageUpdateStacks = new MessageUpdateStacks(stacks, this.getUsedSlots(), this.getMaxSlots());
+            this.cachedMessageUpdateStacksVersion = this.getStackVersion();
+            this.cachedMessageUpdateStacks = new MessageUpdateStacks(stacks, this.getUsedSlots(), this.getMaxSlots(),
+                    this.cachedMessageUpdateStacksVersion).compressAsync();
         }
         return this.cachedMessageUpdateStacks;
     }
 
+    @Nullable
+    @Override
+    public MessageUpdateStacksDelta getMessageUpdateStacksDelta(long sinceVersion) {
+        //viewers at the same version share one message, so it is only built and serialized once.
+        if (this.cachedDeltasVersion != this.getStackVersion()) {
+            this.cachedDeltas.clear();
+            this.cachedDeltasVersion = this.getStackVersion();
+        }
+        if (this.cachedDeltas.containsKey(sinceVersion))
+            return this.cachedDeltas.get(sinceVersion);
+
+        MessageUpdateStacksDelta message = this.createMessageUpdateStacksDelta(sinceVersion);
+        this.cachedDeltas.put(sinceVersion, message);
+        return message;
+    }
+
+    @Nullable
+    protected MessageUpdateStacksDelta createMessageUpdateStacksDelta(long sinceVersion) {
+        StorageControllerItemIndex index = this.itemStackHandlerInternal.getIndex();
+        Set<ItemStackKey> changedKeys = index.getChangedSince(sinceVersion);
+        if (changedKeys == null || changedKeys.size() > MAX_DELTA_STACKS)
+            return null;
+
+        List<ItemStack> changedStacks = new ArrayList<>();
+        List<ItemStack> removedStacks = new ArrayList<>();
+        for (ItemStackKey key : changedKeys) {
+            StorageControllerItemIndex.Entry entry = index.get(key);
+            if (entry == null) {
+                removedStacks.add(key.createStack(1));
+            } else {
+                changedStacks.add(entry.createStack());
+            }
+        }
+        return new MessageUpdateStacksDelta(changedStacks, removedStacks, index.getUsedSlots(), this.getMaxSlots(),
+                sinceVersion, index.getVersion());
+    }
+
+    @Override
+    public long getStackVersion() {
+        return this.itemStackHandlerInternal.getIndex().getVersion();
+    }
+
     @Override
     public int getMaxSlots() {
         return this.maxSlots;
@@ -299,11 +331,13 @@ public class StorageControllerBlockEntity extends NetworkedBlockEntity implement
         //force resync
         this.cachedMessageUpdateStacks = null;
         this.markNetworkDirty();
+        if (!this.viewers.isEmpty())
+            StorageControllerUpdateBroadcaster.markDirty(this);
     }
 
     @Override
     public int getUsedSlots() {
-        return this.usedSlots;
+        return this.itemStackHandlerInternal.getIndex().getUsedSlots();
     }
 
     @Override
@@ -371,9 +405,9 @@ public class StorageControllerBlockEntity extends NetworkedBlockEntity implement
         if (this.isBlacklisted(stack))
             return stack.getCount();
 
-        ItemStackHandler handler = this.itemStackHandlerInternal;
-        if (ItemHandlerHelper.insertItem(handler, stack, true).getCount() < stack.getCount()) {
-            stack = ItemHandlerHelper.insertItem(handler, stack, simulate);
+        StorageControllerItemStackHandler handler = this.itemStackHandlerInternal;
+        if (handler.insertItemIndexed(stack, true).getCount() < stack.getCount()) {
+            stack = handler.insertItemIndexed(stack, simulate);
         }
 
         return stack.getCount();
@@ -385,32 +419,7 @@ public class StorageControllerBlockEntity extends NetworkedBlockEntity implement
             return ItemStack.EMPTY;
         }
 
-        var comparators = this.getComparatorsSortedByAmount(comparator);
-
-        ItemStackHandler handler = this.itemStackHandlerInternal;
-
-        //we start with the comparator representing the most common item, and if we don't find anything we move on.
-        //Note: unless something weird happens we should always find something.
-        for (var currentComparator : comparators) {
-            for (int slot = 0; slot < handler.getSlots(); slot++) {
-
-                //first we force a simulation to check if the stack fits
-                ItemStack stack = handler.extractItem(slot, 1, true);
-                if (stack.isEmpty()) {
-                    continue;
-                }
-
-                if (currentComparator.test(stack)) {
-                    //now we do the actual operation (note: can still be a simulation, if caller wants to simulate=
-                    return handler.extractItem(slot, 1, simulate);
-                }
-
-                //this slot does not match so we move on in the loop.
-            }
-        }
-
-        //nothing found
-        return ItemStack.EMPTY;
+        return this.itemStackHandlerInternal.extractOneOfMostCommonItemIndexed(comparator, simulate);
     }
 
     @Override
@@ -418,74 +427,72 @@ public class StorageControllerBlockEntity extends NetworkedBlockEntity implement
         if (requestedSize <= 0 || comparator == null) {
             return ItemStack.EMPTY;
         }
-        ItemStackHandler handler = this.itemStackHandlerInternal;
-        ItemStack firstMatchedStack = ItemStack.EMPTY;
-        int remaining = requestedSize;
-        for (int slot = 0; slot < handler.getSlots(); slot++) {
-
-            //first we force a simulation
-            ItemStack stack = handler.extractItem(slot, remaining, true);
-            if (stack.isEmpty()) {
-                continue;
-            }
-
-            //if we have not found anything yet we can just store the result or move on
-            if (firstMatchedStack.isEmpty()) {
-
-                if (!comparator.test(stack)) {
-                    //this slot does not match so we move on
-                    continue;
-                }
-                //just take entire stack -> we're in sim mode
-                firstMatchedStack = stack.copy();
-            } else {
-                //we already found something, so we need to make sure the stacks match up, if not we move on.
-                if (!ItemHandlerHelper.canItemStacksStack(firstMatchedStack, stack)) {
-                    continue;
-                }
-            }
-
-            //get how many we have to extract in this round, cannot be more than we need nor more than is in this slot.
-            int toExtract = Math.min(stack.getCount(), remaining);
-
-            //now we can leave simulation up to the caller
-            ItemStack extractedStack = handler.extractItem(slot, toExtract, simulate);
-            remaining -= extractedStack.getCount();
-
-            //if we got all we need we can exit here.
-            if (remaining <= 0) {
-                break;
-            }
-        }
 
-        //set the exact output count and return.
-        int extractCount = requestedSize - remaining;
-        if (!firstMatchedStack.isEmpty() && extractCount > 0) {
-            firstMatchedStack.setCount(extractCount);
-        }
+        return this.itemStackHandlerInternal.extractItemIndexed(comparator, requestedSize, simulate);
+    }
 
-        return firstMatchedStack;
+    @Nullable
+    @Override
+    public List<ItemStack> getItemStacks(List<? extends Predicate<ItemStack>> comparators, int[] requestedSizes,
+                                         boolean simulate) {
+        return this.itemStackHandlerInternal.extractItemsIndexed(comparators, requestedSizes, simulate);
     }
 
     public int getAvailableAmount(IItemStackComparator comparator) {
         if (comparator == null) {
             return 0;
         }
-        int totalCount = 0;
-        ItemStackHandler handler = this.itemStackHandlerInternal;
-        int size = handler.getSlots();
-        for (int slot = 0; slot < size; slot++) {
-            ItemStack stack = handler.getStackInSlot(slot);
-            if (comparator.matches(stack))
-                totalCount += stack.getCount();
-        }
-        return totalCount;
+
+        return (int) Math.min(Integer.MAX_VALUE, this.itemStackHandlerInternal.getCountIndexed(comparator));
     }
 
     @Override
     public void onContentsChanged() {
-        this.cachedMessageUpdateStacks = null;
         this.setChanged();
+        if (!this.viewers.isEmpty())
+            StorageControllerUpdateBroadcaster.markDirty(this);
+    }
+
+    @Override
+    public void addViewer(IStorageControllerContainer viewer) {
+        this.viewers.add(viewer);
+    }
+
+    @Override
+    public void removeViewer(IStorageControllerContainer viewer) {
+        this.viewers.remove(viewer);
+    }
+
+    /**
+     * Sends stack updates to all open viewers. Called at the end of a tick in which the contents changed.
+     */
+    public void broadcastStacks() {
+        //drop viewers that were closed or switched to another controller
+        this.viewers.removeIf(viewer -> !viewer.isViewing(this));
+        for (IStorageControllerContainer viewer : new ArrayList<>(this.viewers)) {
+            viewer.syncStacks();
+        }
+    }
+
+    @Override
+    public void onLoad() {
+        super.onLoad();
+        if (!this.level.isClientSide)
+            StorageControllerProxyRegistry.register(this.level, this);
+    }
+
+    @Override
+    public void setRemoved() {
+        super.setRemoved();
+        if (this.level != null && !this.level.isClientSide)
+            StorageControllerProxyRegistry.unregister(this.level, this);
+    }
+
+    @Override
+    public void onChunkUnloaded() {
+        super.onChunkUnloaded();
+        if (this.level != null && !this.level.isClientSide)
+            StorageControllerProxyRegistry.unregister(this.level, this);
     }
 
     @Override
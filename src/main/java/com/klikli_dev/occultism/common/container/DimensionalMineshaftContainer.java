@@ -30,6 +30,8 @@ import com.klikli_dev.occultism.util.RecipeUtil;
 import net.minecraft.world.entity.player.Inventory;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.inventory.AbstractContainerMenu;
+import net.minecraft.world.inventory.ContainerData;
+import net.minecraft.world.inventory.SimpleContainerData;
 import net.minecraft.world.inventory.Slot;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.crafting.RecipeManager;
@@ -39,10 +41,19 @@ import net.minecraftforge.items.SlotItemHandler;
 
 public class DimensionalMineshaftContainer extends AbstractContainerMenu {
 
+    /**
+     * The resolution of the synced mining progress. Data slots are synced as shorts, so we cannot send raw ticks.
+     */
+    public static final int PROGRESS_RESOLUTION = 1000;
+
     public ItemStackHandler inputHandler;
     public ItemStackHandler outputHandler;
     public DimensionalMineshaftBlockEntity otherworldMiner;
     public Inventory playerInventory;
+    /**
+     * The remaining mining progress, synced to the client only while the menu is open.
+     */
+    protected ContainerData miningData;
 
     public DimensionalMineshaftContainer(int id, Inventory playerInventory,
                                          DimensionalMineshaftBlockEntity otherworldMiner) {
@@ -55,6 +66,14 @@ public class DimensionalMineshaftContainer extends AbstractContainerMenu {
         this.setupMinerInventory();
         this.setupPlayerInventorySlots(playerInventory.player);
         this.setupPlayerHotbar(playerInventory.player);
+        this.setupMiningData();
+    }
+
+    /**
+     * @return the remaining mining progress from {@link #PROGRESS_RESOLUTION} (just started) to 0 (idle).
+     */
+    public int getRemainingProgress() {
+        return this.miningData.get(0);
     }
 
     @Override
@@ -115,6 +134,34 @@ public class DimensionalMineshaftContainer extends AbstractContainerMenu {
             this.addSlot(new Slot(player.getInventory(), i, hotbarLeft + i * 18, hotbarTop));
     }
 
+    protected void setupMiningData() {
+        if (this.playerInventory.player.level().isClientSide) {
+            this.miningData = new SimpleContainerData(1);
+        } else {
+            this.miningData = new ContainerData() {
+                @Override
+                public int get(int index) {
+                    DimensionalMineshaftBlockEntity miner = DimensionalMineshaftContainer.this.otherworldMiner;
+                    int remaining = miner.getRemainingMiningTime();
+                    if (remaining <= 0 || miner.maxMiningTime <= 0)
+                        return 0;
+                    //round up, so a running operation never shows as idle
+                    return Math.min(PROGRESS_RESOLUTION, (int) Math.ceil((double) PROGRESS_RESOLUTION * remaining / miner.maxMiningTime));
+                }
+
+                @Override
+                public void set(int index, int value) {
+                }
+
+                @Override
+                public int getCount() {
+                    return 1;
+                }
+            };
+        }
+        this.addDataSlots(this.miningData);
+    }
+
     protected void setupMinerInventory() {
         int outputGridTop = 17;
         int outputGridLeft = 98;
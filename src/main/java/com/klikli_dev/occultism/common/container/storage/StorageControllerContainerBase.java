@@ -22,6 +22,7 @@
 
 package com.klikli_dev.occultism.common.container.storage;
 
+import com.klikli_dev.occultism.Occultism;
 import com.klikli_dev.occultism.TranslationKeys;
 import com.klikli_dev.occultism.api.common.blockentity.IStorageController;
 import com.klikli_dev.occultism.api.common.container.IStorageControllerContainer;
@@ -30,6 +31,8 @@ import com.klikli_dev.occultism.client.gui.storage.StorageControllerGuiBase;
 import com.klikli_dev.occultism.common.misc.ItemStackComparator;
 import com.klikli_dev.occultism.common.misc.StorageControllerCraftingInventory;
 import com.klikli_dev.occultism.common.misc.StorageControllerSlot;
+import com.klikli_dev.occultism.network.MessageUpdateStacks;
+import com.klikli_dev.occultism.network.MessageUpdateStacksDelta;
 import com.klikli_dev.occultism.network.OccultismPackets;
 import net.minecraft.ChatFormatting;
 import net.minecraft.core.BlockPos;
@@ -51,6 +54,7 @@ import net.minecraftforge.items.wrapper.PlayerMainInvWrapper;
 
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -70,6 +74,15 @@ public abstract class StorageControllerContainerBase extends AbstractContainerMe
      * used to lock recipe while crafting
      */
     protected boolean recipeLocked = false;
+    /**
+     * The storage controller and stack version the client was last synced to, used to send delta updates.
+     */
+    protected IStorageController syncedStorageController;
+    protected long syncedStackVersion = -1;
+    /**
+     * True while a full snapshot is being compressed, deltas are held back so they do not arrive before it.
+     */
+    protected boolean awaitingFullStacks = false;
 
     protected StorageControllerContainerBase(@Nullable MenuType<?> type, int id, Inventory playerInventory) {
         super(type, id);
@@ -120,6 +133,75 @@ public abstract class StorageControllerContainerBase extends AbstractContainerMe
         return this.orderInventory;
     }
 
+    @Override
+    public void syncStacks() {
+        if (!(this.player instanceof ServerPlayer serverPlayer))
+            return;
+
+        IStorageController storageController = this.getStorageController();
+        if (storageController == null || this.awaitingFullStacks)
+            return;
+
+        MessageUpdateStacksDelta delta = null;
+        if (storageController == this.syncedStorageController && this.syncedStackVersion >= 0) {
+            //nothing changed since the last sync
+            if (storageController.getStackVersion() == this.syncedStackVersion)
+                return;
+            delta = storageController.getMessageUpdateStacksDelta(this.syncedStackVersion);
+        }
+
+        if (this.syncedStorageController != storageController) {
+            if (this.syncedStorageController != null)
+                this.syncedStorageController.removeViewer(this);
+            //receive future updates when the controller changes
+            storageController.addViewer(this);
+        }
+
+        this.syncedStorageController = storageController;
+        this.syncedStackVersion = storageController.getStackVersion();
+        if (delta != null) {
+            OccultismPackets.sendTo(serverPlayer, delta);
+            return;
+        }
+
+        CompletableFuture<MessageUpdateStacks> message = storageController.getMessageUpdateStacks();
+        if (message.isDone()) {
+            this.sendFullStacks(serverPlayer, message.getNow(null), null);
+        } else {
+            //hand the compressed message back to the server thread, so it is sent in order with later deltas
+            this.awaitingFullStacks = true;
+            message.whenCompleteAsync((result, error) -> this.sendFullStacks(serverPlayer, result, error),
+                    serverPlayer.server);
+        }
+    }
+
+    protected void sendFullStacks(ServerPlayer player, @Nullable MessageUpdateStacks message, @Nullable Throwable error) {
+        this.awaitingFullStacks = false;
+        if (error != null) {
+            Occultism.LOGGER.error("Failed to compress storage controller stacks", error);
+            //retry with the next sync
+            this.invalidateStackSync();
+            return;
+        }
+        //container was closed while the message was compressed
+        if (player.containerMenu != this)
+            return;
+
+        OccultismPackets.sendTo(player, message);
+        //catch up on changes made while compressing
+        this.syncStacks();
+    }
+
+    @Override
+    public void invalidateStackSync() {
+        this.syncedStackVersion = -1;
+    }
+
+    @Override
+    public boolean isViewing(IStorageController storageController) {
+        return this.player.containerMenu == this && this.getStorageController() == storageController;
+    }
+
     @Override
     public ItemStack quickMoveStack(Player player, int index) {
         if (player.level().isClientSide)
@@ -148,12 +230,9 @@ public abstract class StorageControllerContainerBase extends AbstractContainerMe
                                 remainingItems);
                 slot.set(remainingItemStack);
 
-                //sync slots
+                //sync slots, the changed stacks are sent to all viewers at the end of the tick
                 this.broadcastChanges();
 
-                //get updated stacks from storage controller and send to client
-                OccultismPackets.sendTo((ServerPlayer) player, storageController.getMessageUpdateStacks());
-
                 if (!remainingItemStack.isEmpty()) {
                     slot.onTake(player, slotStack);
                 }
@@ -169,6 +248,10 @@ public abstract class StorageControllerContainerBase extends AbstractContainerMe
         this.updateOrderSlot(true); //only send network update on second call
         super.removed(playerIn);
         openContainers.values().removeIf(uuid -> uuid.equals(playerIn.getUUID()));
+        if (this.syncedStorageController != null) {
+            this.syncedStorageController.removeViewer(this);
+            this.syncedStorageController = null;
+        }
     }
 
     protected void setupPlayerInventorySlots() {
@@ -353,17 +436,28 @@ public abstract class StorageControllerContainerBase extends AbstractContainerMe
 
 
             crafted += resultStackSize;
+            //refill all empty slots from storage at once, then continue looping.
+            //if anything is missing nothing is taken, so the recipe no longer matches and we stop.
+            List<ItemStackComparator> refillComparators = new ArrayList<>(this.matrix.getContainerSize());
+            int[] refillSizes = new int[this.matrix.getContainerSize()];
+            boolean needsRefill = false;
             for (int i = 0; i < this.matrix.getContainerSize(); i++) {
-                ItemStack stackInSlot = this.matrix.getItem(i);
-                //if the stack is empty, refill from storage and then continue looping
-                if (stackInSlot.isEmpty()) {
-                    ItemStack recipeStack = recipeCopy.get(i);
-
-                    ItemStackComparator comparator = !recipeStack.isEmpty() ? new ItemStackComparator(
-                            recipeStack) : null;
-
-                    ItemStack requestedItem = this.getStorageController().getOneOfMostCommonItem(comparator, false);
-                    this.matrix.setItem(i, requestedItem);
+                ItemStack recipeStack = recipeCopy.get(i);
+                if (this.matrix.getItem(i).isEmpty() && !recipeStack.isEmpty()) {
+                    refillComparators.add(new ItemStackComparator(recipeStack));
+                    refillSizes[i] = 1;
+                    needsRefill = true;
+                } else {
+                    refillComparators.add(null);
+                }
+            }
+            if (needsRefill && storageController != null) {
+                List<ItemStack> requestedItems = storageController.getItemStacks(refillComparators, refillSizes, false);
+                if (requestedItems != null) {
+                    for (int i = 0; i < requestedItems.size(); i++) {
+                        if (!requestedItems.get(i).isEmpty())
+                            this.matrix.setItem(i, requestedItems.get(i));
+                    }
                 }
             }
             this.slotsChanged(this.matrix);
@@ -384,7 +478,6 @@ public abstract class StorageControllerContainerBase extends AbstractContainerMe
 
         //update crafting matrix to handle container items / items that survive crafting
         this.slotsChanged(this.matrix);
-        OccultismPackets.sendTo((ServerPlayer) player, this.getStorageController().getMessageUpdateStacks());
 
     }
 
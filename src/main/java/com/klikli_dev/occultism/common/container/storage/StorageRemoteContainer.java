@@ -159,7 +159,7 @@ public class StorageRemoteContainer extends StorageControllerContainerBase {
         //stack updates every 40 ticks.
         if (storageController != null && !entityPlayer.level().isClientSide &&
                 entityPlayer.level().getGameTime() % 40 == 0) {
-            OccultismPackets.sendTo((ServerPlayer) this.player, this.getStorageController().getMessageUpdateStacks());
+            this.syncStacks();
             OccultismPackets.sendTo((ServerPlayer) this.player,
                     new MessageUpdateLinkedMachines(this.getStorageController().getLinkedMachines()));
         }
@@ -2,6 +2,7 @@ package com.klikli_dev.occultism.common.entity.ai.sensor;
 
 import com.klikli_dev.occultism.Occultism;
 import com.klikli_dev.occultism.OccultismConstants;
+import com.klikli_dev.occultism.common.entity.job.SpiritJobScheduler;
 import com.klikli_dev.occultism.common.entity.spirit.SpiritEntity;
 import com.klikli_dev.occultism.network.MessageSelectBlock;
 import com.klikli_dev.occultism.network.OccultismPackets;
@@ -24,12 +25,15 @@ public class NearestJobItemSensor<E extends SpiritEntity> extends PredicateSenso
     public static final int DEFAULT_SCAN_RATE_TICKS = 20;
     private static final List<MemoryModuleType<?>> MEMORIES = ObjectArrayList.of(MemoryModuleType.NEAREST_VISIBLE_WANTED_ITEM);
 
+    protected int deferredScans;
+
     public NearestJobItemSensor() {
         super((item, entity) -> {
             return entity.canPickupItem(item) && entity.hasLineOfSight(item);
         });
 
-        this.setScanRate((entity) -> DEFAULT_SCAN_RATE_TICKS);
+        //staggered per entity so not all spirits rescan on the same tick
+        this.setScanRate((entity) -> SpiritJobScheduler.getTicksUntilPhase(entity, DEFAULT_SCAN_RATE_TICKS));
     }
 
     public List<MemoryModuleType<?>> memoriesUsed() {
@@ -51,6 +55,22 @@ public class NearestJobItemSensor<E extends SpiritEntity> extends PredicateSenso
             return;
         }
 
+        //rescans are low priority, if spirits used up the tick budget we try again on the next scan
+        if (this.deferredScans < SpiritJobScheduler.MAX_CONSECUTIVE_DEFERRALS && SpiritJobScheduler.defer(SpiritJobScheduler.WorkType.SENSOR_SCAN)) {
+            this.deferredScans++;
+            return;
+        }
+        this.deferredScans = 0;
+
+        long start = System.nanoTime();
+        try {
+            this.scan(level, entity);
+        } finally {
+            SpiritJobScheduler.addWorkTime(start);
+        }
+    }
+
+    protected void scan(ServerLevel level, E entity) {
         var workAreaCenter = BrainUtils.getMemory(entity, OccultismMemoryTypes.WORK_AREA_CENTER.get());
         var workAreaSize = BrainUtils.getMemory(entity, OccultismMemoryTypes.WORK_AREA_SIZE.get());
 
@@ -3,6 +3,7 @@ package com.klikli_dev.occultism.common.entity.ai.sensor;
 import com.klikli_dev.occultism.Occultism;
 import com.klikli_dev.occultism.OccultismConstants;
 import com.klikli_dev.occultism.common.entity.ai.BlockSorter;
+import com.klikli_dev.occultism.common.entity.job.SpiritJobScheduler;
 import com.klikli_dev.occultism.common.entity.spirit.SpiritEntity;
 import com.klikli_dev.occultism.network.MessageSelectBlock;
 import com.klikli_dev.occultism.network.OccultismPackets;
@@ -38,8 +39,11 @@ public class NearestTreeSensor<E extends SpiritEntity> extends ExtendedSensor<E>
             OccultismMemoryTypes.NON_TREE_LOGS.get()
     );
 
+    protected int deferredScans;
+
     public NearestTreeSensor() {
-        this.setScanRate((entity) -> DEFAULT_SCAN_RATE_TICKS);
+        //staggered per entity so not all lumberjacks rescan on the same tick
+        this.setScanRate((entity) -> SpiritJobScheduler.getTicksUntilPhase(entity, DEFAULT_SCAN_RATE_TICKS));
     }
 
     public static boolean isTreeSoil(Level level, BlockPos pos) {
@@ -77,6 +81,23 @@ public class NearestTreeSensor<E extends SpiritEntity> extends ExtendedSensor<E>
         if (BrainUtils.hasMemory(entity, OccultismMemoryTypes.NO_TREE_IN_WORK_AREA.get()))
             return;
 
+        //rescans are low priority, if spirits used up the tick budget we try again on the next scan
+        if (this.deferredScans < SpiritJobScheduler.MAX_CONSECUTIVE_DEFERRALS && SpiritJobScheduler.defer(SpiritJobScheduler.WorkType.SENSOR_SCAN)) {
+            this.deferredScans++;
+            return;
+        }
+        this.deferredScans = 0;
+
+        long start = System.nanoTime();
+        try {
+            this.scan(level, entity);
+        } finally {
+            SpiritJobScheduler.addWorkTime(start);
+        }
+    }
+
+    protected void scan(ServerLevel level, E entity) {
+
         var nonTreeLogs = BrainUtils.memoryOrDefault(entity, OccultismMemoryTypes.NON_TREE_LOGS.get(), HashSet::new);
         var unreachableTrees = BrainUtils.memoryOrDefault(entity, OccultismMemoryTypes.UNREACHABLE_TREES.get(), HashSet::new);
         var workAreaCenter = BrainUtils.getMemory(entity, OccultismMemoryTypes.WORK_AREA_CENTER.get());
@@ -91,23 +112,12 @@ public class NearestTreeSensor<E extends SpiritEntity> extends ExtendedSensor<E>
             }
         }
 
-        //get blocks in work area. We do /2 because we offset from the center
-        var blocksInWorkArea = BlockPos.betweenClosedStream(
-                workAreaCenter.offset(-workAreaSize / 2, -workAreaSize / 2, -workAreaSize / 2),
-                workAreaCenter.offset(workAreaSize / 2, workAreaSize / 2, workAreaSize / 2)
-        ).map(BlockPos::immutable);
-
-        //filter potential stumps
-        List<BlockPos> potentialStumps = blocksInWorkArea
-                .filter(pos -> isLog(level, pos)
-                        && isTreeSoil(level, pos.below())
-                        && !nonTreeLogs.contains(pos)
-                        && !unreachableTrees.contains(pos)
-                )
+        //potential stumps are indexed per work area, only sections that can contain logs are scanned and afterwards only changed blocks are re-checked
+        var logIndex = WorkAreaLogIndex.get(level, workAreaCenter, workAreaSize);
+        List<BlockPos> potentialStumps = logIndex.getPotentialStumps().stream()
+                .filter(pos -> !nonTreeLogs.contains(pos) && !unreachableTrees.contains(pos))
                 .collect(Collectors.toList());
 
-        //TODO: refactor to search in increaseing radiuses? (manhattan distance helper might help, or "closest match"
-
         var foundTree = false;
         if (!potentialStumps.isEmpty()) {
             potentialStumps.sort(new BlockSorter(entity));
@@ -177,9 +187,10 @@ public class NearestTreeSensor<E extends SpiritEntity> extends ExtendedSensor<E>
 
     private BlockPos getStump(Level level, BlockPos log) {
         //for all nearby logs and leaves, move one block down and recurse.
-        for (BlockPos pos : BlockPos.betweenClosedStream(log.offset(-4, -4, -4), log.offset(4, 0, 4)).map(BlockPos::immutable).toList()) {
-            if (isLog(level, pos.below()) || isLeaf(level, pos.below())) {
-                return this.getStump(level, pos.below());
+        for (BlockPos pos : BlockPos.betweenClosed(log.offset(-4, -4, -4), log.offset(4, 0, 4))) {
+            BlockPos below = pos.below();
+            if (isLog(level, below) || isLeaf(level, below)) {
+                return this.getStump(level, below);
             }
         }
         return log;
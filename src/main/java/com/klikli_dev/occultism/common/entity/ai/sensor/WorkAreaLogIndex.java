@@ -0,0 +1,250 @@
+/*
+ * MIT License
+ *
+ * Copyright 2023 klikli-dev
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.klikli_dev.occultism.common.entity.ai.sensor;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.tags.BlockTags;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.LevelAccessor;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+
+import java.util.*;
+
+/**
+ * Keeps track of potential tree stumps (logs on tree soil) in a work area.
+ * The index is built once from the chunk sections overlapping the work area and afterwards only re-checks positions reported by block events.
+ */
+public class WorkAreaLogIndex {
+
+    /**
+     * Full rebuild as a backstop for changes that do not fire block events.
+     */
+    public static final int REBUILD_AFTER_TICKS = 20 * 60 * 5;
+    /**
+     * Indexes that have not been queried for this long are dropped.
+     */
+    public static final int EVICT_AFTER_TICKS = 20 * 60 * 10;
+
+    private static final Map<LevelAccessor, Map<Key, WorkAreaLogIndex>> INDEXES = new WeakHashMap<>();
+
+    /**
+     * The same indexes by each chunk they overlap, so block events only reach the indexes of their chunk.
+     */
+    private static final Map<LevelAccessor, Long2ObjectMap<Set<WorkAreaLogIndex>>> INDEXES_BY_CHUNK = new WeakHashMap<>();
+
+    protected final BlockPos min;
+    protected final BlockPos max;
+    protected final Set<BlockPos> potentialStumps = new HashSet<>();
+    protected final Set<BlockPos> pendingPositions = new HashSet<>();
+    protected boolean complete;
+    protected long buildTime;
+    protected long lastAccessTime;
+
+    protected WorkAreaLogIndex(BlockPos center, int size) {
+        //We do /2 because we offset from the center
+        this.min = center.offset(-size / 2, -size / 2, -size / 2);
+        this.max = center.offset(size / 2, size / 2, size / 2);
+    }
+
+    /**
+     * Gets the up-to-date log index for the given work area.
+     *
+     * @param level  the level.
+     * @param center the work area center.
+     * @param size   the work area size.
+     * @return the log index.
+     */
+    public static WorkAreaLogIndex get(ServerLevel level, BlockPos center, int size) {
+        long time = level.getGameTime();
+        var indexes = INDEXES.computeIfAbsent(level, l -> new HashMap<>());
+        var indexesByChunk = INDEXES_BY_CHUNK.computeIfAbsent(level, l -> new Long2ObjectOpenHashMap<>());
+        var iterator = indexes.values().iterator();
+        while (iterator.hasNext()) {
+            var index = iterator.next();
+            if (time - index.lastAccessTime > EVICT_AFTER_TICKS) {
+                iterator.remove();
+                index.removeFromChunks(indexesByChunk);
+            }
+        }
+
+        var index = indexes.computeIfAbsent(new Key(center.immutable(), size), key -> {
+            var created = new WorkAreaLogIndex(key.center(), key.size());
+            created.addToChunks(indexesByChunk);
+            return created;
+        });
+        index.lastAccessTime = time;
+        index.update(level);
+        return index;
+    }
+
+    /**
+     * Marks the given position for re-checking in all work areas that contain it.
+     * The actual check happens lazily on the next query, so events fired before the change (e.g. break) are handled correctly.
+     *
+     * @param level the level.
+     * @param pos   the changed position.
+     */
+    public static void onBlockChanged(LevelAccessor level, BlockPos pos) {
+        if (level.isClientSide() || INDEXES_BY_CHUNK.isEmpty())
+            return;
+
+        var indexesByChunk = INDEXES_BY_CHUNK.get(level);
+        if (indexesByChunk == null)
+            return;
+
+        //pos and pos.above() are always in the same chunk
+        var indexes = indexesByChunk.get(ChunkPos.asLong(pos));
+        if (indexes == null)
+            return;
+
+        for (var index : indexes) {
+            //a change below the area can turn the bottom layer into a stump
+            if (index.contains(pos) || index.contains(pos.above())) {
+                index.pendingPositions.add(pos.immutable());
+            }
+        }
+    }
+
+    public static void clear() {
+        INDEXES.clear();
+        INDEXES_BY_CHUNK.clear();
+    }
+
+    //region Getter / Setter
+    public Set<BlockPos> getPotentialStumps() {
+        return this.potentialStumps;
+    }
+    //endregion Getter / Setter
+
+    public boolean contains(BlockPos pos) {
+        return pos.getX() >= this.min.getX() && pos.getX() <= this.max.getX() &&
+                pos.getY() >= this.min.getY() && pos.getY() <= this.max.getY() &&
+                pos.getZ() >= this.min.getZ() && pos.getZ() <= this.max.getZ();
+    }
+
+    protected void addToChunks(Long2ObjectMap<Set<WorkAreaLogIndex>> indexesByChunk) {
+        for (int chunkX = SectionPos.blockToSectionCoord(this.min.getX()); chunkX <= SectionPos.blockToSectionCoord(this.max.getX()); chunkX++) {
+            for (int chunkZ = SectionPos.blockToSectionCoord(this.min.getZ()); chunkZ <= SectionPos.blockToSectionCoord(this.max.getZ()); chunkZ++) {
+                indexesByChunk.computeIfAbsent(ChunkPos.asLong(chunkX, chunkZ), c -> new HashSet<>()).add(this);
+            }
+        }
+    }
+
+    protected void removeFromChunks(Long2ObjectMap<Set<WorkAreaLogIndex>> indexesByChunk) {
+        for (int chunkX = SectionPos.blockToSectionCoord(this.min.getX()); chunkX <= SectionPos.blockToSectionCoord(this.max.getX()); chunkX++) {
+            for (int chunkZ = SectionPos.blockToSectionCoord(this.min.getZ()); chunkZ <= SectionPos.blockToSectionCoord(this.max.getZ()); chunkZ++) {
+                long chunk = ChunkPos.asLong(chunkX, chunkZ);
+                var indexes = indexesByChunk.get(chunk);
+                if (indexes != null) {
+                    indexes.remove(this);
+                    if (indexes.isEmpty())
+                        indexesByChunk.remove(chunk);
+                }
+            }
+        }
+    }
+
+    protected void update(ServerLevel level) {
+        if (!this.complete || level.getGameTime() - this.buildTime > REBUILD_AFTER_TICKS) {
+            this.rebuild(level);
+            return;
+        }
+
+        for (var pos : this.pendingPositions) {
+            //the changed block can be the log itself or the soil below it
+            this.updatePosition(level, pos);
+            this.updatePosition(level, pos.above());
+        }
+        this.pendingPositions.clear();
+    }
+
+    protected void updatePosition(ServerLevel level, BlockPos pos) {
+        if (!this.contains(pos))
+            return;
+
+        if (NearestTreeSensor.isLog(level, pos) && NearestTreeSensor.isTreeSoil(level, pos.below()))
+            this.potentialStumps.add(pos);
+        else
+            this.potentialStumps.remove(pos);
+    }
+
+    protected void rebuild(ServerLevel level) {
+        this.potentialStumps.clear();
+        this.pendingPositions.clear();
+        this.complete = true;
+        this.buildTime = level.getGameTime();
+
+        int minY = Math.max(this.min.getY(), level.getMinBuildHeight());
+        int maxY = Math.min(this.max.getY(), level.getMaxBuildHeight() - 1);
+        if (minY > maxY)
+            return;
+
+        var pos = new BlockPos.MutableBlockPos();
+        for (int chunkX = SectionPos.blockToSectionCoord(this.min.getX()); chunkX <= SectionPos.blockToSectionCoord(this.max.getX()); chunkX++) {
+            for (int chunkZ = SectionPos.blockToSectionCoord(this.min.getZ()); chunkZ <= SectionPos.blockToSectionCoord(this.max.getZ()); chunkZ++) {
+                //do not load chunks just to look for trees, instead retry on the next query
+                LevelChunk chunk = level.getChunkSource().getChunkNow(chunkX, chunkZ);
+                if (chunk == null) {
+                    this.complete = false;
+                    continue;
+                }
+
+                int fromX = Math.max(this.min.getX(), SectionPos.sectionToBlockCoord(chunkX));
+                int toX = Math.min(this.max.getX(), SectionPos.sectionToBlockCoord(chunkX, 15));
+                int fromZ = Math.max(this.min.getZ(), SectionPos.sectionToBlockCoord(chunkZ));
+                int toZ = Math.min(this.max.getZ(), SectionPos.sectionToBlockCoord(chunkZ, 15));
+
+                for (int sectionY = SectionPos.blockToSectionCoord(minY); sectionY <= SectionPos.blockToSectionCoord(maxY); sectionY++) {
+                    LevelChunkSection section = chunk.getSection(chunk.getSectionIndexFromSectionY(sectionY));
+
+                    //the palette tells us if there can be any logs in this section at all
+                    if (section.hasOnlyAir() || !section.maybeHas(state -> state.is(BlockTags.LOGS)))
+                        continue;
+
+                    int fromY = Math.max(minY, SectionPos.sectionToBlockCoord(sectionY));
+                    int toY = Math.min(maxY, SectionPos.sectionToBlockCoord(sectionY, 15));
+
+                    for (int y = fromY; y <= toY; y++) {
+                        for (int z = fromZ; z <= toZ; z++) {
+                            for (int x = fromX; x <= toX; x++) {
+                                if (section.getBlockState(x & 15, y & 15, z & 15).is(BlockTags.LOGS)
+                                        && NearestTreeSensor.isTreeSoil(level, pos.set(x, y - 1, z))) {
+                                    this.potentialStumps.add(new BlockPos(x, y, z));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    protected record Key(BlockPos center, int size) {
+    }
+}
@@ -205,6 +205,7 @@ public abstract class FamiliarEntity extends PathfinderMob implements IFamiliar
 
     private void setOwnerId(UUID id) {
         this.entityData.set(OWNER_UNIQUE_ID, Optional.ofNullable(id));
+        FamiliarRegistry.updateOwner(this);
     }
 
     @Override
@@ -0,0 +1,202 @@
+/*
+ * MIT License
+ *
+ * Copyright 2023 klikli-dev
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.klikli_dev.occultism.common.entity.familiar;
+
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.phys.AABB;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Server side lookup of familiars by owner, so familiar checks in hot event handlers do not need entity queries or
+ * curios scans.
+ * Familiars in the world register when they join a level, change owner or leave a level.
+ * Familiars in rings are marked by the ring every curio tick and only count while that keeps happening.
+ */
+public class FamiliarRegistry {
+
+    /**
+     * The max age of an equipped mark in ticks. Lookups may run before or after the ring ticked this tick.
+     */
+    public static final int EQUIPPED_TIMEOUT_TICKS = 1;
+
+    /**
+     * Familiars in the world by owner id.
+     */
+    private static final Map<UUID, Set<Entity>> FAMILIARS = new HashMap<>();
+
+    /**
+     * The owner id each familiar is currently registered for, so owner changes can move it.
+     * Familiars are unregistered when they leave the level, so this does not need weak keys.
+     */
+    private static final Map<Entity, UUID> REGISTERED = new HashMap<>();
+
+    /**
+     * Familiars in equipped rings with the game time they were last ticked, by wearer.
+     */
+    private static final Map<LivingEntity, Map<Entity, Long>> EQUIPPED = new WeakHashMap<>();
+
+    /**
+     * Registers the familiar for its current owner, or moves it there if it was registered for another one.
+     *
+     * @param familiar the familiar that is in the world.
+     */
+    public static void register(IFamiliar familiar) {
+        Entity entity = familiar.getFamiliarEntity();
+        if (entity.level().isClientSide)
+            return;
+
+        UUID ownerId = getOwnerId(familiar);
+        if (REGISTERED.containsKey(entity) && Objects.equals(REGISTERED.get(entity), ownerId))
+            return;
+
+        unregister(familiar);
+        FAMILIARS.computeIfAbsent(ownerId, id -> new LinkedHashSet<>()).add(entity);
+        REGISTERED.put(entity, ownerId);
+    }
+
+    /**
+     * Moves the familiar to its new owner, if it is registered.
+     *
+     * @param familiar the familiar whose owner changed.
+     */
+    public static void updateOwner(IFamiliar familiar) {
+        //also called when ring familiars are loaded on the client, the maps are server only
+        if (familiar.getFamiliarEntity().level().isClientSide)
+            return;
+
+        if (REGISTERED.containsKey(familiar.getFamiliarEntity()))
+            register(familiar);
+    }
+
+    public static void unregister(IFamiliar familiar) {
+        Entity entity = familiar.getFamiliarEntity();
+        if (entity.level().isClientSide || !REGISTERED.containsKey(entity))
+            return;
+
+        UUID ownerId = REGISTERED.remove(entity);
+        Set<Entity> familiars = FAMILIARS.get(ownerId);
+        if (familiars != null) {
+            familiars.remove(entity);
+            if (familiars.isEmpty())
+                FAMILIARS.remove(ownerId);
+        }
+    }
+
+    /**
+     * Marks the familiar as being in a ring equipped by the wearer for this tick.
+     *
+     * @param wearer   the entity wearing the ring.
+     * @param familiar the familiar in the ring.
+     */
+    public static void markEquipped(LivingEntity wearer, IFamiliar familiar) {
+        if (wearer.level().isClientSide)
+            return;
+
+        EQUIPPED.computeIfAbsent(wearer, w -> new LinkedHashMap<>()).put(familiar.getFamiliarEntity(), wearer.level().getGameTime());
+    }
+
+    /**
+     * Gets the familiars of the given type in the world that belong to the owner and are near them.
+     *
+     * @param owner the owner.
+     * @param type  the familiar type.
+     * @param area  the area the familiar needs to be in.
+     * @param pred  additional filter.
+     * @return the matching familiars.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Entity & IFamiliar> List<T> getNearbyFamiliars(LivingEntity owner, EntityType<T> type, AABB area,
+                                                                           Predicate<T> pred) {
+        List<T> result = new ArrayList<>();
+        Set<Entity> familiars = FAMILIARS.get(owner.getUUID());
+        if (familiars == null)
+            return result;
+
+        for (Entity entity : familiars) {
+            if (entity.getType() == type && entity.level() == owner.level() && entity.isAlive() &&
+                    entity.getBoundingBox().intersects(area)) {
+                T familiar = (T) entity;
+                if (familiar.getFamiliarOwner() == owner && pred.test(familiar))
+                    result.add(familiar);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the familiars of the given type in rings the wearer currently has equipped.
+     *
+     * @param wearer the entity wearing the rings.
+     * @param type   the familiar type.
+     * @param pred   additional filter.
+     * @return the matching familiars.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Entity & IFamiliar> List<T> getEquippedFamiliars(LivingEntity wearer, EntityType<T> type,
+                                                                             Predicate<T> pred) {
+        List<T> result = new ArrayList<>();
+        Map<Entity, Long> familiars = EQUIPPED.get(wearer);
+        if (familiars == null)
+            return result;
+
+        long time = wearer.level().getGameTime();
+        Iterator<Map.Entry<Entity, Long>> iterator = familiars.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Entity, Long> entry = iterator.next();
+            //the ring was unequipped or the familiar released
+            if (time - entry.getValue() > EQUIPPED_TIMEOUT_TICKS || time < entry.getValue()) {
+                iterator.remove();
+                continue;
+            }
+
+            if (entry.getKey().getType() == type) {
+                T familiar = (T) entry.getKey();
+                if (pred.test(familiar))
+                    result.add(familiar);
+            }
+        }
+        return result;
+    }
+
+    public static void clear() {
+        FAMILIARS.clear();
+        REGISTERED.clear();
+        EQUIPPED.clear();
+    }
+
+    private static UUID getOwnerId(IFamiliar familiar) {
+        //use the stored id, the owner entity is not available while they are offline
+        if (familiar instanceof FamiliarEntity familiarEntity)
+            return familiarEntity.getOwnerId();
+        if (familiar instanceof OtherworldBirdEntity bird)
+            return bird.getOwnerUUID();
+
+        LivingEntity owner = familiar.getFamiliarOwner();
+        return owner == null ? null : owner.getUUID();
+    }
+}
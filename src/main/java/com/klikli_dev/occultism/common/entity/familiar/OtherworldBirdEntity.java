@@ -98,6 +98,7 @@ public class OtherworldBirdEntity extends Parrot implements IFamiliar {
     @Override
     public void setOwnerUUID(@Nullable UUID ownerId) {
         super.setOwnerUUID(ownerId);
+        FamiliarRegistry.updateOwner(this);
     }
 
     @Override
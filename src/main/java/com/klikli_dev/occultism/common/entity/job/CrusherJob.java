@@ -128,7 +128,7 @@ public class CrusherJob extends SpiritJob {
                 this.crushingTimer++;
 
                 //show particle effect while crushing
-                if (this.entity.level().getGameTime() % 10 == 0) {
+                if (SpiritJobScheduler.isPhase(this.entity, 10) && !SpiritJobScheduler.defer(SpiritJobScheduler.WorkType.PARTICLES)) {
                     Vec3 pos = this.entity.position();
                     ((ServerLevel) this.entity.level())
                             .sendParticles(ParticleTypes.PORTAL, pos.x + this.entity.level().random.nextGaussian() / 3,
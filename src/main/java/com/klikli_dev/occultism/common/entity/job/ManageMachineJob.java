@@ -31,18 +31,30 @@ import com.klikli_dev.occultism.common.entity.ai.goal.ManageMachineGoal;
 import com.klikli_dev.occultism.common.entity.spirit.SpiritEntity;
 import com.klikli_dev.occultism.common.misc.DepositOrder;
 import com.klikli_dev.occultism.util.BlockEntityUtil;
+import net.minecraft.core.Direction;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
 import net.minecraft.nbt.Tag;
 import net.minecraft.world.entity.ai.goal.OpenDoorGoal;
 import net.minecraft.world.entity.ai.navigation.GroundPathNavigation;
+import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraftforge.common.capabilities.ForgeCapabilities;
 
 import java.util.ArrayDeque;
 import java.util.Queue;
 
 public class ManageMachineJob extends SpiritJob {
 
+    /**
+     * How often the machine inventories are checked for changes while idle.
+     */
+    public static final int MACHINE_CHECK_INTERVAL_TICKS = 20;
+    /**
+     * Re-evaluate targets at least this often, for changes we cannot observe (e.g. the machine was replaced).
+     */
+    public static final int FORCED_WORK_CHECK_INTERVAL_TICKS = 20 * 10;
+
     protected DepositItemsGoal depositItemsGoal;
     protected ManageMachineGoal manageMachineGoal;
     protected FallbackDepositToControllerGoal fallbackDepositToControllerGoal;
@@ -54,6 +66,11 @@ public class ManageMachineJob extends SpiritJob {
     protected IStorageController storageController;
     protected BlockEntity managedMachineBlockEntity;
     protected BlockEntity extractBlockEntity;
+    protected boolean workPending = true;
+    protected long lastMachineCheckTime;
+    protected long lastWorkCheckTime;
+    protected int lastMachineFingerprint;
+    protected long lastStorageVersion = -1;
 
     public ManageMachineJob(SpiritEntity entity) {
         super(entity);
@@ -81,6 +98,7 @@ public class ManageMachineJob extends SpiritJob {
         this.extractBlockEntity = null; //reset, next call to get will refill it based on the new managed machine.
         this.clearAllOrders();
         this.registerWithStorageController();
+        this.markWorkPending();
     }
 
     public GlobalBlockPos getStorageControllerPosition() {
@@ -95,6 +113,7 @@ public class ManageMachineJob extends SpiritJob {
         this.storageController = null; //reset, register will re-fill it if the position is valid.
         this.clearAllOrders();
         this.registerWithStorageController();
+        this.markWorkPending();
     }
 
     public IStorageController getStorageController() {
@@ -167,6 +186,7 @@ public class ManageMachineJob extends SpiritJob {
             //if we don't have an order and there is one available, take it from queue.
             if (this.getCurrentDepositOrder() == null && !this.depositOrderQueue.isEmpty()) {
                 this.setCurrentDepositOrder(this.depositOrderQueue.poll());
+                this.markWorkPending();
             }
         }
 
@@ -218,6 +238,81 @@ public class ManageMachineJob extends SpiritJob {
 
     public void addDepsitOrder(DepositOrder order) {
         this.depositOrderQueue.add(order);
+        this.markWorkPending();
+    }
+
+    /**
+     * Wakes up the machine management, the next goal evaluation will look for new targets.
+     */
+    public void markWorkPending() {
+        this.workPending = true;
+    }
+
+    /**
+     * Checks if there may be new work since the last time targets were evaluated.
+     * Orders and target changes wake up the job directly, the machine inventories and storage contents are only compared
+     * against a cheap fingerprint, so an idle managed machine does not simulate any transfers.
+     *
+     * @return true if targets should be re-evaluated.
+     */
+    public boolean consumeWorkPending() {
+        long time = this.entity.level().getGameTime();
+        if (this.workPending) {
+            this.workPending = false;
+            this.lastWorkCheckTime = time;
+            return true;
+        }
+
+        if (time - this.lastMachineCheckTime < MACHINE_CHECK_INTERVAL_TICKS)
+            return false;
+        this.lastMachineCheckTime = time;
+
+        boolean changed = false;
+
+        int machineFingerprint = this.getMachineFingerprint();
+        if (machineFingerprint != this.lastMachineFingerprint) {
+            this.lastMachineFingerprint = machineFingerprint;
+            changed = true;
+        }
+
+        //items for an order that could not be fulfilled may have arrived in storage
+        IStorageController storageController = this.getStorageController();
+        if (this.currentDepositOrder != null && storageController != null &&
+                storageController.getStackVersion() != this.lastStorageVersion) {
+            this.lastStorageVersion = storageController.getStackVersion();
+            changed = true;
+        }
+
+        if (changed || time - this.lastWorkCheckTime >= FORCED_WORK_CHECK_INTERVAL_TICKS) {
+            this.lastWorkCheckTime = time;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return a hash over the contents of the machine insert and extract inventories.
+     */
+    protected int getMachineFingerprint() {
+        if (this.managedMachine == null)
+            return 0;
+
+        int fingerprint = this.getInventoryFingerprint(this.getManagedMachineBlockEntity(), this.managedMachine.insertFacing);
+        return 31 * fingerprint + this.getInventoryFingerprint(this.getExtractBlockEntity(), this.managedMachine.extractFacing);
+    }
+
+    protected int getInventoryFingerprint(BlockEntity blockEntity, Direction facing) {
+        if (blockEntity == null)
+            return 0;
+
+        return blockEntity.getCapability(ForgeCapabilities.ITEM_HANDLER, facing).map(handler -> {
+            int fingerprint = 1;
+            for (int i = 0; i < handler.getSlots(); i++) {
+                ItemStack stack = handler.getStackInSlot(i);
+                fingerprint = 31 * fingerprint + (stack.isEmpty() ? 0 : 31 * stack.getItem().hashCode() + stack.getCount());
+            }
+            return fingerprint;
+        }).orElse(-1);
     }
 
     public void clearAllOrders() {
@@ -0,0 +1,154 @@
+/*
+ * MIT License
+ *
+ * Copyright 2023 klikli-dev
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.klikli_dev.occultism.common.entity.job;
+
+import com.klikli_dev.occultism.Occultism;
+import net.minecraft.world.entity.Entity;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Spreads periodic spirit work across ticks and keeps the time all spirits spend per tick within a budget.
+ * <p>
+ * Periodic work uses a per-entity phase offset, so spirits loaded at the same time do not all do their work on the same tick.
+ * Job updates and sensor scans are timed, once the configured budget is used up low priority work is deferred.
+ */
+public class SpiritJobScheduler {
+
+    /**
+     * How often deferred work is reported to the log.
+     */
+    public static final int REPORT_INTERVAL_TICKS = 20 * 60;
+    /**
+     * Low priority work deferred this often in a row is run regardless of budget, so it cannot starve.
+     */
+    public static final int MAX_CONSECUTIVE_DEFERRALS = 3;
+
+    private static final Map<WorkType, Integer> DEFERRED = new EnumMap<>(WorkType.class);
+    private static long usedNanos;
+    private static int ticksSinceReport;
+
+    /**
+     * Gets the per-entity phase offset for work that happens every interval ticks.
+     *
+     * @param entity   the entity.
+     * @param interval the interval in ticks.
+     * @return the phase offset in [0, interval).
+     */
+    public static int getPhase(Entity entity, int interval) {
+        return Math.floorMod(entity.getId() * 31, interval);
+    }
+
+    /**
+     * Replacement for gameTime % interval == 0 that is staggered across entities.
+     *
+     * @param entity   the entity.
+     * @param interval the interval in ticks.
+     * @return true if this is the entity's tick for work with the given interval.
+     */
+    public static boolean isPhase(Entity entity, int interval) {
+        return Math.floorMod(entity.level().getGameTime() + getPhase(entity, interval), interval) == 0;
+    }
+
+    /**
+     * Gets the ticks until the entity's next phase for the given interval, for use as a sensor scan rate.
+     *
+     * @param entity   the entity.
+     * @param interval the interval in ticks.
+     * @return the ticks until the next phase, in [1, interval].
+     */
+    public static int getTicksUntilPhase(Entity entity, int interval) {
+        int ticks = Math.floorMod(-(entity.level().getGameTime() + getPhase(entity, interval)), interval);
+        return ticks == 0 ? interval : ticks;
+    }
+
+    /**
+     * Runs the job update and counts its time towards the budget.
+     *
+     * @param job the job to update.
+     */
+    public static void update(SpiritJob job) {
+        long start = System.nanoTime();
+        try {
+            job.update();
+        } finally {
+            usedNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Counts the time since the given start time towards the budget.
+     *
+     * @param startNanos the start time from {@link System#nanoTime()}.
+     */
+    public static void addWorkTime(long startNanos) {
+        usedNanos += System.nanoTime() - startNanos;
+    }
+
+    public static boolean isOverBudget() {
+        long budgetNanos = Occultism.SERVER_CONFIG.spiritJobs.tickBudgetMicroseconds.get() * 1000L;
+        return budgetNanos > 0 && usedNanos >= budgetNanos;
+    }
+
+    /**
+     * Checks if low priority work should be skipped this time because the budget is used up, and records it if so.
+     *
+     * @param type the type of work.
+     * @return true if the work should be deferred.
+     */
+    public static boolean defer(WorkType type) {
+        if (!isOverBudget())
+            return false;
+
+        DEFERRED.merge(type, 1, Integer::sum);
+        return true;
+    }
+
+    public static void onServerTickStart() {
+        usedNanos = 0;
+    }
+
+    public static void onServerTickEnd() {
+        if (++ticksSinceReport < REPORT_INTERVAL_TICKS)
+            return;
+        ticksSinceReport = 0;
+
+        if (!DEFERRED.isEmpty()) {
+            Occultism.LOGGER.debug("Spirit job budget exceeded, deferred in the last {} ticks: {}", REPORT_INTERVAL_TICKS, DEFERRED);
+            DEFERRED.clear();
+        }
+    }
+
+    public static void clear() {
+        DEFERRED.clear();
+        usedNanos = 0;
+        ticksSinceReport = 0;
+    }
+
+    public enum WorkType {
+        SENSOR_SCAN,
+        PARTICLES
+    }
+}
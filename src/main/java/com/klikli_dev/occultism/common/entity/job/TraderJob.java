@@ -108,7 +108,7 @@ public class TraderJob extends SpiritJob {
     public void update() {
         ItemStack handHeld = this.entity.getItemInHand(InteractionHand.MAIN_HAND);
         if (this.trade != null && this.trade.isValid(handHeld)) {
-            if (this.entity.level().getGameTime() % 10 == 0) {
+            if (SpiritJobScheduler.isPhase(this.entity, 10) && !SpiritJobScheduler.defer(SpiritJobScheduler.WorkType.PARTICLES)) {
                 //show particle effect while converting
                 Vec3 pos = this.entity.position();
                 ((ServerLevel) this.entity.level())
@@ -116,7 +116,7 @@ public class TraderJob extends SpiritJob {
                                 pos.y + 0.5, pos.z + this.entity.level().random.nextGaussian() / 3, 1, 0.0, 0.0, 0.0,
                                 0.0);
             }
-            if (this.entity.level().getGameTime() % 20 == 0) {
+            if (SpiritJobScheduler.isPhase(this.entity, 20)) {
                 this.conversionTimer++;
             }
             if (this.conversionTimer >= this.getTimeToConvert()) {
@@ -27,6 +27,7 @@ import com.google.common.collect.ImmutableMap;
 import com.klikli_dev.occultism.api.common.data.WorkAreaSize;
 import com.klikli_dev.occultism.common.container.spirit.SpiritContainer;
 import com.klikli_dev.occultism.common.entity.job.SpiritJob;
+import com.klikli_dev.occultism.common.entity.job.SpiritJobScheduler;
 import com.klikli_dev.occultism.common.item.spirit.BookOfCallingItem;
 import com.klikli_dev.occultism.exceptions.ItemHandlerMissingException;
 import com.klikli_dev.occultism.registry.OccultismMemoryTypes;
@@ -467,7 +468,7 @@ public abstract class SpiritEntity extends TamableAnimal implements ISkinnedCrea
             }
 
             //every 20 ticks = 1 second, age by 1 second
-            if (this.level().getGameTime() % 20 == 0 && !this.dead && this.canDieFromAge()) {
+            if (SpiritJobScheduler.isPhase(this, 20) && !this.dead && this.canDieFromAge()) {
                 this.setSpiritAge(this.getSpiritAge() + 1);
                 if (this.getSpiritAge() > this.getSpiritMaxAge()) {
                     this.die(this.damageSources().generic());
@@ -475,7 +476,7 @@ public abstract class SpiritEntity extends TamableAnimal implements ISkinnedCrea
                 }
             }
             if (!this.dead)
-                this.getJob().ifPresent(SpiritJob::update);
+                this.getJob().ifPresent(SpiritJobScheduler::update);
         }
         this.updateSwingTime();
         super.aiStep();
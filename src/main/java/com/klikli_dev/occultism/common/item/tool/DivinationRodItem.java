@@ -69,7 +69,7 @@ public class DivinationRodItem extends Item {
     @Override
     public void onUseTick(Level pLevel, LivingEntity pLivingEntity, ItemStack pStack, int pRemainingUseDuration) {
         if (pLivingEntity.level().isClientSide && pLivingEntity instanceof Player player) {
-            ScanManager.instance.updateScan(player, false);
+            ScanManager.instance.updateScan(player);
         }
     }
 
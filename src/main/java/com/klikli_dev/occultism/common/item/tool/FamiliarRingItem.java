@@ -23,6 +23,7 @@
 package com.klikli_dev.occultism.common.item.tool;
 
 import com.klikli_dev.occultism.common.advancement.FamiliarTrigger;
+import com.klikli_dev.occultism.common.entity.familiar.FamiliarRegistry;
 import com.klikli_dev.occultism.common.entity.familiar.IFamiliar;
 import com.klikli_dev.occultism.registry.OccultismAdvancements;
 import com.klikli_dev.occultism.util.ItemNBTUtil;
@@ -88,6 +89,8 @@ public class FamiliarRingItem extends Item {
         var tag = super.getShareTag(stack);
 
         if (tag != null && !tag.contains("familiar")) {
+            //copy so the familiar is not written into the stack itself, otherwise it is deserialized again on the next access
+            tag = tag.copy();
             tag.put("familiar", getCurio(stack).serializeNBT());
         }
 
@@ -211,9 +214,20 @@ public class FamiliarRingItem extends Item {
     }
 
     private static class Curio implements ICurio, INBTSerializable<CompoundTag> {
+        /**
+         * Ticks after which the snapshot is refreshed even if no synced data changed, to pick up plain fields like cooldowns.
+         */
+        private static final int SNAPSHOT_REFRESH_TICKS = 20 * 10;
+
         private final ItemStack stack;
         private IFamiliar familiar;
         private CompoundTag nbt;
+        /**
+         * The serialized familiar, re-created only if the familiar changed, so syncs and saves do not serialize the entity every time.
+         */
+        private CompoundTag snapshot;
+        private boolean snapshotDirty;
+        private int ticksSinceSnapshot;
 
         private Curio(ItemStack stack) {
             this.stack = stack;
@@ -268,6 +282,8 @@ public class FamiliarRingItem extends Item {
                 if (!familiar.getFamiliarEntity().isAddedToWorld())
                     familiar.getFamiliarEntity().setLevel(level);
 
+                FamiliarRegistry.markEquipped(slotContext.entity(), familiar);
+
                 if (familiar.getFamiliarOwner() != slotContext.entity())
                     return;
                 // Apply effects
@@ -277,6 +293,8 @@ public class FamiliarRingItem extends Item {
 
                 // Tick
                 familiar.curioTick(slotContext.entity());
+                if (++this.ticksSinceSnapshot >= SNAPSHOT_REFRESH_TICKS)
+                    this.snapshotDirty = true;
             }
         }
 
@@ -285,7 +303,8 @@ public class FamiliarRingItem extends Item {
             CompoundTag compound = new CompoundTag();
             compound.putBoolean("hasFamiliar", this.familiar != null || this.nbt != null);
             if (this.familiar != null)
-                compound.put("familiar", this.familiar.getFamiliarEntity().serializeNBT());
+                //hand out a copy, the result may end up shared between stacks (e.g. via ItemStack.copy in singleplayer)
+                compound.put("familiar", this.getSnapshot().copy());
             else if (this.nbt != null)
                 compound.put("familiar", this.nbt);
 
@@ -294,8 +313,27 @@ public class FamiliarRingItem extends Item {
 
         @Override
         public void deserializeNBT(CompoundTag compound) {
-            if (compound.getBoolean("hasFamiliar"))
+            if (compound.getBoolean("hasFamiliar")) {
+                this.familiar = null;
                 this.nbt = compound.getCompound("familiar");
+                this.snapshot = null;
+            }
+        }
+
+        private CompoundTag getSnapshot() {
+            //the familiar is not tracked while in the ring, so its synced data stays dirty until we consume it here
+            var entityData = this.familiar.getFamiliarEntity().getEntityData();
+            if (entityData.isDirty()) {
+                entityData.packDirty();
+                this.snapshotDirty = true;
+            }
+
+            if (this.snapshot == null || this.snapshotDirty) {
+                this.snapshot = this.familiar.getFamiliarEntity().serializeNBT();
+                this.snapshotDirty = false;
+                this.ticksSinceSnapshot = 0;
+            }
+            return this.snapshot;
         }
 
         // Need this because we cannot deserialize the familiar in deserializeNBT()
@@ -305,6 +343,10 @@ public class FamiliarRingItem extends Item {
                 return this.familiar;
             if (this.nbt != null) {
                 this.familiar = (IFamiliar) EntityType.loadEntityRecursive(this.nbt, level, Function.identity());
+                //the freshly loaded familiar matches its nbt, so that can be re-used until something changes
+                this.snapshot = this.familiar != null ? this.nbt : null;
+                this.snapshotDirty = false;
+                this.ticksSinceSnapshot = 0;
                 this.nbt = null;
             }
 
@@ -314,6 +356,7 @@ public class FamiliarRingItem extends Item {
         private void setFamiliar(IFamiliar familiar) {
             this.familiar = familiar;
             this.nbt = null;
+            this.snapshot = null;
         }
 
     }
@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright 2023 klikli-dev
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.klikli_dev.occultism.common.misc;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+
+import javax.annotation.Nullable;
+import java.util.Objects;
+
+/**
+ * Identity of an item stack ignoring its count, used to group stacks in the storage controller.
+ * Two stacks with the same item and equal nbt map to equal keys.
+ */
+public final class ItemStackKey {
+
+    private final Item item;
+    @Nullable
+    private final CompoundTag tag;
+    private final int hash;
+    private ItemStack stack;
+
+    private ItemStackKey(Item item, @Nullable CompoundTag tag) {
+        this.item = item;
+        this.tag = tag;
+        this.hash = 31 * item.hashCode() + Objects.hashCode(tag);
+    }
+
+    //region Static Methods
+
+    /**
+     * Creates a key for the given stack. The nbt is copied, so the key stays valid if the stack is modified.
+     *
+     * @param stack the stack to create the key for.
+     * @return the key.
+     */
+    public static ItemStackKey of(ItemStack stack) {
+        return new ItemStackKey(stack.getItem(), stack.getTag() == null ? null : stack.getTag().copy());
+    }
+
+    /**
+     * Creates a key for the given stack without copying the nbt. Only use for short-lived map lookups.
+     *
+     * @param stack the stack to create the key for.
+     * @return the key.
+     */
+    public static ItemStackKey lookup(ItemStack stack) {
+        return new ItemStackKey(stack.getItem(), stack.getTag());
+    }
+    //endregion Static Methods
+
+    //region Getter / Setter
+    public Item getItem() {
+        return this.item;
+    }
+
+    @Nullable
+    public CompoundTag getTag() {
+        return this.tag;
+    }
+
+    /**
+     * Gets a stack of size 1 representing this key. Used to test predicates against, must not be modified!
+     *
+     * @return the shared stack for this key.
+     */
+    public ItemStack getStack() {
+        if (this.stack == null) {
+            this.stack = this.createStack(1);
+        }
+        return this.stack;
+    }
+    //endregion Getter / Setter
+
+    /**
+     * @param count the stack size.
+     * @return a new stack of this key with the given size.
+     */
+    public ItemStack createStack(int count) {
+        ItemStack stack = new ItemStack(this.item, count);
+        if (this.tag != null)
+            stack.setTag(this.tag.copy());
+        return stack;
+    }
+
+    /**
+     * @param stack the stack to check.
+     * @return true if the given stack has the same item and nbt as this key.
+     */
+    public boolean matches(ItemStack stack) {
+        return !stack.isEmpty() && stack.getItem() == this.item && Objects.equals(this.tag, stack.getTag());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof ItemStackKey other))
+            return false;
+        return this.hash == other.hash && this.item == other.item && Objects.equals(this.tag, other.tag);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+}
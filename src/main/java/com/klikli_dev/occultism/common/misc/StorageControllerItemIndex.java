@@ -0,0 +1,382 @@
+/*
+ * MIT License
+ *
+ * Copyright 2023 klikli-dev
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.klikli_dev.occultism.common.misc;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntRBTreeSet;
+import it.unimi.dsi.fastutil.ints.IntSortedSet;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Index over the slots of a storage controller, grouping slots by item identity and keeping running totals.
+ * Kept up to date by {@link StorageControllerItemStackHandler} whenever a slot changes, so lookups only need to
+ * touch the slots holding matching items instead of scanning the entire handler.
+ */
+public class StorageControllerItemIndex {
+
+    /**
+     * The maximum number of changes remembered for delta syncs, clients that fall further behind get a full sync.
+     */
+    public static final int MAX_JOURNAL_SIZE = 4096;
+
+    /**
+     * The key currently stored in each slot, null for empty slots.
+     */
+    protected final List<ItemStackKey> slotKeys = new ArrayList<>();
+    /**
+     * The item count last seen in each slot.
+     */
+    protected final IntArrayList slotCounts = new IntArrayList();
+    /**
+     * Aggregated view of the storage, linked to keep the order stable between syncs.
+     */
+    protected final Map<ItemStackKey, Entry> entries = new LinkedHashMap<>();
+    protected final Map<Item, Set<ItemStackKey>> keysByItem = new HashMap<>();
+    protected final IntSortedSet emptySlots = new IntRBTreeSet();
+    /**
+     * The total amount of items over all slots.
+     */
+    protected long totalCount;
+    /**
+     * Changes in order of their version, used to compute delta syncs.
+     */
+    protected final ArrayDeque<Change> journal = new ArrayDeque<>();
+    protected long version;
+    /**
+     * The oldest version a delta can be computed from.
+     */
+    protected long oldestDeltaVersion;
+
+    //region Getter / Setter
+
+    /**
+     * @return all item keys currently stored.
+     */
+    public Set<ItemStackKey> getKeys() {
+        return Collections.unmodifiableSet(this.entries.keySet());
+    }
+
+    /**
+     * @return the aggregated entries, one per stored item key.
+     */
+    public Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(this.entries.values());
+    }
+
+    /**
+     * @param key the key to get the entry for.
+     * @return the entry for the given key, or null if nothing of this key is stored.
+     */
+    @Nullable
+    public Entry get(ItemStackKey key) {
+        return this.entries.get(key);
+    }
+
+    /**
+     * @param stack the stack to get the entry for.
+     * @return the entry for items stacking with the given stack, or null if none are stored.
+     */
+    @Nullable
+    public Entry get(ItemStack stack) {
+        return stack.isEmpty() ? null : this.entries.get(ItemStackKey.lookup(stack));
+    }
+
+    /**
+     * @return the number of slots that hold items.
+     */
+    public int getUsedSlots() {
+        return this.slotKeys.size() - this.emptySlots.size();
+    }
+
+    /**
+     * @return the total amount of items stored.
+     */
+    public long getTotalCount() {
+        return this.totalCount;
+    }
+
+    /**
+     * @return the current version, incremented on every change.
+     */
+    public long getVersion() {
+        return this.version;
+    }
+    //endregion Getter / Setter
+
+    /**
+     * Gets the keys whose totals changed after the given version.
+     *
+     * @param sinceVersion the version the caller last saw.
+     * @return the changed keys, or null if the changes since that version are no longer known.
+     */
+    @Nullable
+    public Set<ItemStackKey> getChangedSince(long sinceVersion) {
+        if (sinceVersion < this.oldestDeltaVersion || sinceVersion > this.version)
+            return null;
+
+        Set<ItemStackKey> changed = new LinkedHashSet<>();
+        Iterator<Change> iterator = this.journal.descendingIterator();
+        while (iterator.hasNext()) {
+            Change change = iterator.next();
+            if (change.version() <= sinceVersion)
+                break;
+            if (change.key() != null)
+                changed.add(change.key());
+        }
+        return changed;
+    }
+
+    /**
+     * Gets the first empty slot at or after the given slot.
+     *
+     * @param fromSlot the slot to start searching at.
+     * @return the slot index, or -1 if there is no empty slot.
+     */
+    public int getFirstEmptySlot(int fromSlot) {
+        IntSortedSet tail = this.emptySlots.tailSet(fromSlot);
+        return tail.isEmpty() ? -1 : tail.firstInt();
+    }
+
+    /**
+     * Gets all keys whose items match the given comparator. Item stack comparators are resolved via direct lookups,
+     * all other predicates are tested once per stored key rather than once per slot.
+     *
+     * @param comparator the comparator to match.
+     * @return the matching keys.
+     */
+    public List<ItemStackKey> getMatchingKeys(Predicate<ItemStack> comparator) {
+        if (comparator instanceof ItemStackComparator itemStackComparator) {
+            ItemStack filterStack = itemStackComparator.getFilterStack();
+            if (filterStack.isEmpty())
+                return Collections.emptyList();
+
+            if (itemStackComparator.getMatchNbt()) {
+                Entry entry = this.get(filterStack);
+                return entry == null ? Collections.emptyList() : Collections.singletonList(entry.key);
+            }
+
+            Set<ItemStackKey> keys = this.keysByItem.get(filterStack.getItem());
+            return keys == null ? Collections.emptyList() : new ArrayList<>(keys);
+        }
+
+        List<ItemStackKey> result = new ArrayList<>();
+        for (ItemStackKey key : this.entries.keySet()) {
+            if (comparator.test(key.getStack()))
+                result.add(key);
+        }
+        return result;
+    }
+
+    /**
+     * Rebuilds the entire index from the given slot contents.
+     *
+     * @param stacks the slot contents.
+     */
+    public void rebuild(List<ItemStack> stacks) {
+        this.slotKeys.clear();
+        this.slotCounts.clear();
+        this.entries.clear();
+        this.keysByItem.clear();
+        this.emptySlots.clear();
+        this.totalCount = 0;
+
+        for (int slot = 0; slot < stacks.size(); slot++) {
+            this.slotKeys.add(null);
+            this.slotCounts.add(0);
+            this.emptySlots.add(slot);
+            this.update(slot, stacks.get(slot));
+        }
+
+        //slot contents may have been replaced entirely, so deltas from before are meaningless.
+        this.journal.clear();
+        this.version++;
+        this.oldestDeltaVersion = this.version;
+    }
+
+    /**
+     * Adds empty slots to the end of the index until it has the given size.
+     *
+     * @param size the new size.
+     */
+    public void grow(int size) {
+        if (size <= this.slotKeys.size())
+            return;
+
+        for (int slot = this.slotKeys.size(); slot < size; slot++) {
+            this.slotKeys.add(null);
+            this.slotCounts.add(0);
+            this.emptySlots.add(slot);
+        }
+        //no item changed, but the slot count did
+        this.markChanged(null);
+    }
+
+    /**
+     * Removes an empty slot, shifting all later slots down by one, as when removing it from the slot list.
+     * Unlike a rebuild this keeps the delta journal, as no item totals change.
+     *
+     * @param slot the empty slot to remove.
+     */
+    public void removeSlot(int slot) {
+        if (this.slotKeys.get(slot) != null)
+            throw new IllegalArgumentException("Slot " + slot + " is not empty.");
+
+        this.slotKeys.remove(slot);
+        this.slotCounts.removeInt(slot);
+        this.emptySlots.remove(slot);
+
+        //renumber the later slots in ascending order, the target index was always vacated by the previous step
+        for (int newSlot = slot; newSlot < this.slotKeys.size(); newSlot++) {
+            ItemStackKey key = this.slotKeys.get(newSlot);
+            IntSortedSet slots = key == null ? this.emptySlots : this.entries.get(key).slots;
+            slots.remove(newSlot + 1);
+            slots.add(newSlot);
+        }
+        //no item changed, but the slot count did
+        this.markChanged(null);
+    }
+
+    /**
+     * Updates the index for a single slot. Must be called whenever the content of a slot changes.
+     *
+     * @param slot  the slot that changed.
+     * @param stack the new content of the slot.
+     */
+    public void update(int slot, ItemStack stack) {
+        this.grow(slot + 1);
+
+        ItemStackKey oldKey = this.slotKeys.get(slot);
+        int oldCount = this.slotCounts.getInt(slot);
+
+        //same item, only the count changed.
+        if (oldKey != null && oldKey.matches(stack)) {
+            this.entries.get(oldKey).count += stack.getCount() - oldCount;
+            this.totalCount += stack.getCount() - oldCount;
+            this.slotCounts.set(slot, stack.getCount());
+            if (stack.getCount() != oldCount)
+                this.markChanged(oldKey);
+            return;
+        }
+
+        if (oldKey != null) {
+            this.remove(oldKey, slot, oldCount);
+            this.markChanged(oldKey);
+        }
+
+        if (stack.isEmpty()) {
+            this.slotKeys.set(slot, null);
+            this.slotCounts.set(slot, 0);
+            this.emptySlots.add(slot);
+            return;
+        }
+
+        Entry entry = this.get(stack);
+        if (entry == null) {
+            entry = new Entry(ItemStackKey.of(stack));
+            this.entries.put(entry.key, entry);
+            this.keysByItem.computeIfAbsent(entry.key.getItem(), item -> new HashSet<>()).add(entry.key);
+        }
+        entry.slots.add(slot);
+        entry.count += stack.getCount();
+        this.totalCount += stack.getCount();
+
+        this.slotKeys.set(slot, entry.key);
+        this.slotCounts.set(slot, stack.getCount());
+        this.emptySlots.remove(slot);
+        this.markChanged(entry.key);
+    }
+
+    /**
+     * Records a change for delta syncs.
+     *
+     * @param key the key whose total changed, or null if only slot metadata changed.
+     */
+    protected void markChanged(@Nullable ItemStackKey key) {
+        this.version++;
+        this.journal.addLast(new Change(this.version, key));
+        if (this.journal.size() > MAX_JOURNAL_SIZE) {
+            this.oldestDeltaVersion = this.journal.pollFirst().version();
+        }
+    }
+
+    protected void remove(ItemStackKey key, int slot, int count) {
+        Entry entry = this.entries.get(key);
+        entry.slots.remove(slot);
+        entry.count -= count;
+        this.totalCount -= count;
+        if (entry.slots.isEmpty()) {
+            this.entries.remove(key);
+            Set<ItemStackKey> keys = this.keysByItem.get(key.getItem());
+            keys.remove(key);
+            if (keys.isEmpty())
+                this.keysByItem.remove(key.getItem());
+        }
+    }
+
+    protected record Change(long version, @Nullable ItemStackKey key) {
+    }
+
+    /**
+     * The slots and total count stored for one item key.
+     */
+    public static class Entry {
+        protected final ItemStackKey key;
+        protected final IntSortedSet slots = new IntRBTreeSet();
+        protected long count;
+
+        public Entry(ItemStackKey key) {
+            this.key = key;
+        }
+
+        public ItemStackKey getKey() {
+            return this.key;
+        }
+
+        /**
+         * @return the slots holding this item, in ascending order. Must not be modified.
+         */
+        public IntSortedSet getSlots() {
+            return this.slots;
+        }
+
+        /**
+         * @return the total amount of this item across all slots.
+         */
+        public long getCount() {
+            return this.count;
+        }
+
+        /**
+         * @return a new stack of this entry's item with the total count, capped to the int range.
+         */
+        public ItemStack createStack() {
+            return this.key.createStack((int) Math.min(Integer.MAX_VALUE, this.count));
+        }
+    }
+}
@@ -24,31 +24,68 @@ package com.klikli_dev.occultism.common.misc;
 
 import com.klikli_dev.occultism.api.common.blockentity.IStorageController;
 import com.klikli_dev.occultism.common.data.NonNullArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
 import net.minecraft.nbt.Tag;
+import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraftforge.items.ItemHandlerHelper;
 import net.minecraftforge.items.ItemStackHandler;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 
 public class StorageControllerItemStackHandler extends ItemStackHandler {
 
     protected int maxStackSize;
     protected int maxSlots;
     protected boolean overrideItemStackSizes;
+    /**
+     * If true each item is kept in a single slot without a stack size limit, only the total amount of items is limited.
+     */
+    protected boolean virtualStorage;
     protected IStorageController storageController;
+    protected StorageControllerItemIndex index = new StorageControllerItemIndex();
 
     public StorageControllerItemStackHandler(IStorageController storageController, int size, int maxStackSize,
                                              boolean overrideItemStackSizes) {
+        this(storageController, size, maxStackSize, overrideItemStackSizes, false);
+    }
+
+    public StorageControllerItemStackHandler(IStorageController storageController, int size, int maxStackSize,
+                                             boolean overrideItemStackSizes, boolean virtualStorage) {
         super();
         this.stacks = NonNullArrayList.withSize(size, ItemStack.EMPTY);
         this.storageController = storageController;
         this.maxSlots = size;
         this.maxStackSize = maxStackSize;
         this.overrideItemStackSizes = overrideItemStackSizes;
+        this.virtualStorage = virtualStorage;
+        this.index.rebuild(this.stacks);
+    }
+
+    public StorageControllerItemIndex getIndex() {
+        return this.index;
+    }
+
+    public boolean isVirtualStorage() {
+        return this.virtualStorage;
+    }
+
+    /**
+     * @return the total amount of items that fit into virtual storage, the slots limit the amount of distinct items.
+     */
+    public long getTotalCapacity() {
+        return (long) this.maxSlots * this.maxStackSize;
     }
 
     @Override
@@ -62,6 +99,7 @@ public class StorageControllerItemStackHandler extends ItemStackHandler {
         if (size > this.stacks.size()) {
             //add empty item stacks until we are full
             this.stacks.addAll(Collections.nCopies(size - this.stacks.size(), ItemStack.EMPTY));
+            this.index.grow(this.stacks.size());
         }
         //if list got smaller we prune what wer can, the rest is removed ony by one when a full stack is removed
         else if (size < this.stacks.size()) {
@@ -74,6 +112,9 @@ public class StorageControllerItemStackHandler extends ItemStackHandler {
     public ItemStack insertItem(int slot, @Nonnull ItemStack stack, boolean simulate) {
         if (slot > this.maxSlots - 1) //if we are oversized, do not allow insertion into the overhead.
             return stack;
+        //in virtual storage each item only occupies one slot, so other slots can not take it.
+        if (this.virtualStorage && this.stacks.get(slot).isEmpty() && this.index.get(stack) != null)
+            return stack;
         return super.insertItem(slot, stack, simulate);
     }
 
@@ -84,8 +125,11 @@ public class StorageControllerItemStackHandler extends ItemStackHandler {
 
         if (!simulate && this.stacks.size() > this.maxSlots) {
             //in real mode if we are above desired size, delete empty slots.
-            if (this.stacks.get(slot).isEmpty())
+            if (this.stacks.get(slot).isEmpty()) {
                 this.stacks.remove(slot);
+                //slot indices after the removed one shifted, the index follows without a full rebuild.
+                this.index.removeSlot(slot);
+            }
         }
 
         return result;
@@ -126,37 +170,90 @@ public class StorageControllerItemStackHandler extends ItemStackHandler {
 
     @Override
     public int getSlotLimit(int slot) {
-        return this.maxStackSize;
+        return this.virtualStorage ? Integer.MAX_VALUE : this.maxStackSize;
     }
 
     @Override
     protected int getStackLimit(int slot, @Nonnull ItemStack stack) {
+        if (this.virtualStorage && slot >= 0) {
+            //virtual slots take any amount until the total capacity is used up
+            long free = Math.max(0, this.getTotalCapacity() - this.index.getTotalCount());
+            return (int) Math.min(Integer.MAX_VALUE, this.stacks.get(slot).getCount() + free);
+        }
         return this.overrideItemStackSizes ? this.getSlotLimit(slot) : Math.min(this.getSlotLimit(slot),
                 stack.getMaxStackSize());
     }
 
+    /**
+     * Saves each distinct item once, followed by the slots and counts it is stored in.
+     * Stacks whose capabilities differ from the first stack of their item are saved individually in the legacy format.
+     */
     @Override
     public CompoundTag serializeNBT() {
+        ListTag keyTagList = new ListTag();
         ListTag nbtTagList = new ListTag();
-        for (int i = 0; i < this.stacks.size(); i++) {
-            if (!this.stacks.get(i).isEmpty()) {
-                CompoundTag itemTag = new CompoundTag();
-                ItemStack stack = this.stacks.get(i);
-                itemTag.putInt("Slot", i);
-                stack.save(itemTag);
-                itemTag.putInt("RealSize", stack.getCount());
-                nbtTagList.add(itemTag);
+        IntArrayList slots = new IntArrayList();
+        IntArrayList counts = new IntArrayList();
+        for (StorageControllerItemIndex.Entry entry : this.index.getEntries()) {
+            ItemStack first = this.stacks.get(entry.getSlots().firstInt());
+            slots.clear();
+            counts.clear();
+            for (int slot : entry.getSlots()) {
+                ItemStack stack = this.stacks.get(slot);
+                //slots whose stack drifted from the index key (e.g. changed in place) keep their own full nbt
+                if (ItemStack.isSameItemSameTags(stack, first) && stack.areCapsCompatible(first)) {
+                    slots.add(slot);
+                    counts.add(stack.getCount());
+                } else {
+                    nbtTagList.add(this.serializeSlot(slot, stack));
+                }
             }
+            if (slots.isEmpty())
+                continue;
+
+            CompoundTag keyTag = new CompoundTag();
+            ItemHandlerHelper.copyStackWithSize(first, 1).save(keyTag);
+            keyTag.putIntArray("Slots", slots.toIntArray());
+            keyTag.putIntArray("Counts", counts.toIntArray());
+            keyTagList.add(keyTag);
         }
         CompoundTag nbt = new CompoundTag();
+        nbt.put("Keys", keyTagList);
         nbt.put("Items", nbtTagList);
         nbt.putInt("Size", this.stacks.size());
         return nbt;
     }
 
+    protected CompoundTag serializeSlot(int slot, ItemStack stack) {
+        CompoundTag itemTag = new CompoundTag();
+        itemTag.putInt("Slot", slot);
+        stack.save(itemTag);
+        itemTag.putInt("RealSize", stack.getCount());
+        return itemTag;
+    }
+
+    /**
+     * Reads both the per item format and the legacy format that saved every slot with its full item.
+     */
     @Override
     public void deserializeNBT(CompoundTag nbt) {
         this.setSize(nbt.contains("Size", Tag.TAG_INT) ? nbt.getInt("Size") : this.stacks.size());
+
+        ListTag keyTagList = nbt.getList("Keys", Tag.TAG_COMPOUND);
+        for (int i = 0; i < keyTagList.size(); i++) {
+            CompoundTag keyTag = keyTagList.getCompound(i);
+            ItemStack stack = ItemStack.of(keyTag);
+            if (stack.isEmpty())
+                continue;
+
+            int[] slots = keyTag.getIntArray("Slots");
+            int[] counts = keyTag.getIntArray("Counts");
+            for (int j = 0; j < slots.length && j < counts.length; j++) {
+                if (slots[j] >= 0 && slots[j] < this.stacks.size())
+                    this.stacks.set(slots[j], ItemHandlerHelper.copyStackWithSize(stack, counts[j]));
+            }
+        }
+
         ListTag tagList = nbt.getList("Items", Tag.TAG_COMPOUND);
         for (int i = 0; i < tagList.size(); i++) {
             CompoundTag itemTags = tagList.getCompound(i);
@@ -171,8 +268,14 @@ public class StorageControllerItemStackHandler extends ItemStackHandler {
         this.onLoad();
     }
 
+    @Override
+    protected void onLoad() {
+        this.index.rebuild(this.stacks);
+    }
+
     @Override
     protected void onContentsChanged(int slot) {
+        this.index.update(slot, this.stacks.get(slot));
         this.storageController.onContentsChanged();
     }
 
@@ -182,6 +285,231 @@ public class StorageControllerItemStackHandler extends ItemStackHandler {
             if (this.stacks.get(i).isEmpty())
                 this.stacks.remove(i);
         }
+        this.index.rebuild(this.stacks);
+    }
+
+    /**
+     * Inserts the given stack, first topping up slots that already hold the same item, then filling empty slots.
+     * Uses the index, so only slots that can actually accept the stack are visited.
+     *
+     * @param stack    the stack to insert.
+     * @param simulate true to simulate.
+     * @return the remainder that could not be inserted.
+     */
+    public ItemStack insertItemIndexed(ItemStack stack, boolean simulate) {
+        if (stack.isEmpty())
+            return stack;
+
+        ItemStack remaining = stack;
+        StorageControllerItemIndex.Entry entry = this.index.get(stack);
+        if (entry != null) {
+            //copy slots, the index is updated while we insert.
+            for (int slot : entry.getSlots().toIntArray()) {
+                remaining = this.insertItem(slot, remaining, simulate);
+                if (remaining.isEmpty())
+                    return ItemStack.EMPTY;
+            }
+            //in virtual storage the existing slot is the only one the item may use
+            if (this.virtualStorage)
+                return remaining;
+        }
+
+        int slot = this.index.getFirstEmptySlot(0);
+        while (slot >= 0 && slot < this.maxSlots) {
+            remaining = this.insertItem(slot, remaining, simulate);
+            if (remaining.isEmpty())
+                return ItemStack.EMPTY;
+            slot = this.index.getFirstEmptySlot(slot + 1);
+        }
+        return remaining;
+    }
+
+    /**
+     * Extracts up to the requested amount of the first stored item matching the comparator.
+     *
+     * @param comparator    the comparator to match against.
+     * @param requestedSize the amount to extract.
+     * @param simulate      true to simulate.
+     * @return the extracted stack.
+     */
+    public ItemStack extractItemIndexed(Predicate<ItemStack> comparator, int requestedSize, boolean simulate) {
+        //use the key stored in the lowest slot, matching the behaviour of a linear scan.
+        StorageControllerItemIndex.Entry match = null;
+        for (ItemStackKey key : this.index.getMatchingKeys(comparator)) {
+            StorageControllerItemIndex.Entry entry = this.index.get(key);
+            if (match == null || entry.getSlots().firstInt() < match.getSlots().firstInt())
+                match = entry;
+        }
+        if (match == null)
+            return ItemStack.EMPTY;
+
+        return this.extractFromEntry(match, requestedSize, simulate);
+    }
+
+    /**
+     * Extracts one item of the item matching the comparator that is stored in the largest amount.
+     *
+     * @param comparator the comparator to match against.
+     * @param simulate   true to simulate.
+     * @return the extracted stack of size 1.
+     */
+    public ItemStack extractOneOfMostCommonItemIndexed(Predicate<ItemStack> comparator, boolean simulate) {
+        List<ItemStackKey> keys = this.index.getMatchingKeys(comparator);
+
+        //group by item, nbt variants of the same item count towards the same total
+        Map<Item, Long> totals = new HashMap<>();
+        for (ItemStackKey key : keys) {
+            totals.merge(key.getItem(), this.index.get(key).getCount(), Long::sum);
+        }
+
+        Item mostCommon = null;
+        long mostCommonCount = 0;
+        for (Map.Entry<Item, Long> total : totals.entrySet()) {
+            if (total.getValue() > mostCommonCount) {
+                mostCommon = total.getKey();
+                mostCommonCount = total.getValue();
+            }
+        }
+        if (mostCommon == null)
+            return ItemStack.EMPTY;
+
+        StorageControllerItemIndex.Entry match = null;
+        for (ItemStackKey key : keys) {
+            StorageControllerItemIndex.Entry entry = this.index.get(key);
+            if (key.getItem() == mostCommon && (match == null || entry.getCount() > match.getCount()))
+                match = entry;
+        }
+        return this.extractFromEntry(match, 1, simulate);
+    }
+
+    /**
+     * Extracts multiple stacks at once, resolving all requests against the index before anything is extracted.
+     * Each request is served from the matching item with the most items left after the previous requests were reserved.
+     * Only stacks with capabilities compatible to the last slot of an item count towards it, as extraction never merges others.
+     * Either all requests are fulfilled, or nothing is extracted.
+     *
+     * @param comparators    the comparators to match against, one per request. Null requests nothing.
+     * @param requestedSizes the amount to extract per request.
+     * @param simulate       true to simulate.
+     * @return the extracted stacks in request order, empty for requests of nothing, or null if not all requests could be fulfilled.
+     */
+    @Nullable
+    public List<ItemStack> extractItemsIndexed(List<? extends Predicate<ItemStack>> comparators, int[] requestedSizes,
+                                               boolean simulate) {
+        //reserve the amounts per key, so multiple requests for the same item do not overdraw it.
+        Object2LongMap<ItemStackKey> reserved = new Object2LongOpenHashMap<>();
+        //extraction does not merge stacks with different capabilities, so each key is served from one compatible group only.
+        Map<ItemStackKey, ItemStack> capsReferences = new HashMap<>();
+        Object2LongMap<ItemStackKey> compatibleCounts = new Object2LongOpenHashMap<>();
+        List<ItemStackKey> resolvedKeys = new ArrayList<>(comparators.size());
+        for (int i = 0; i < comparators.size(); i++) {
+            Predicate<ItemStack> comparator = comparators.get(i);
+            int requestedSize = requestedSizes[i];
+            if (comparator == null || requestedSize <= 0) {
+                resolvedKeys.add(null);
+                continue;
+            }
+
+            ItemStackKey match = null;
+            long matchAvailable = 0;
+            for (ItemStackKey key : this.index.getMatchingKeys(comparator)) {
+                StorageControllerItemIndex.Entry entry = this.index.get(key);
+                //the total is an upper bound, only look at the capabilities if it could be enough
+                if (entry.getCount() - reserved.getLong(key) < requestedSize)
+                    continue;
+
+                ItemStack capsReference = capsReferences.computeIfAbsent(key, k -> this.stacks.get(entry.getSlots().lastInt()).copy());
+                if (!compatibleCounts.containsKey(key))
+                    compatibleCounts.put(key, this.getCompatibleCount(entry, capsReference));
+                long available = compatibleCounts.getLong(key) - reserved.getLong(key);
+                if (available >= requestedSize && available > matchAvailable) {
+                    match = key;
+                    matchAvailable = available;
+                }
+            }
+            if (match == null)
+                return null;
+
+            reserved.put(match, reserved.getLong(match) + requestedSize);
+            resolvedKeys.add(match);
+        }
+
+        //everything is available within one capability group per key, so the extraction can no longer fail.
+        List<ItemStack> result = new ArrayList<>(comparators.size());
+        for (int i = 0; i < resolvedKeys.size(); i++) {
+            ItemStackKey key = resolvedKeys.get(i);
+            if (key == null) {
+                result.add(ItemStack.EMPTY);
+            } else if (simulate) {
+                result.add(key.createStack(requestedSizes[i]));
+            } else {
+                //look up the entry again, removing oversized slots may have rebuilt the index
+                result.add(this.extractFromEntry(this.index.get(key), requestedSizes[i], false, capsReferences.get(key)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param comparator the comparator to match against.
+     * @return the total amount of all stored items matching the comparator.
+     */
+    public long getCountIndexed(Predicate<ItemStack> comparator) {
+        long count = 0;
+        for (ItemStackKey key : this.index.getMatchingKeys(comparator)) {
+            count += this.index.get(key).getCount();
+        }
+        return count;
+    }
+
+    /**
+     * @param entry     the entry to count.
+     * @param reference the stack to compare capabilities with.
+     * @return the amount of items in the slots of the entry whose capabilities are compatible with the reference.
+     */
+    protected long getCompatibleCount(StorageControllerItemIndex.Entry entry, ItemStack reference) {
+        long count = 0;
+        for (int slot : entry.getSlots()) {
+            ItemStack stack = this.stacks.get(slot);
+            if (stack.areCapsCompatible(reference))
+                count += stack.getCount();
+        }
+        return count;
+    }
+
+    protected ItemStack extractFromEntry(StorageControllerItemIndex.Entry entry, int requestedSize, boolean simulate) {
+        return this.extractFromEntry(entry, requestedSize, simulate, null);
+    }
+
+    /**
+     * @param capsReference only extract from slots with capabilities compatible with this stack, null to use the first extracted stack.
+     */
+    protected ItemStack extractFromEntry(StorageControllerItemIndex.Entry entry, int requestedSize, boolean simulate,
+                                         @Nullable ItemStack capsReference) {
+        ItemStack firstMatchedStack = ItemStack.EMPTY;
+        int remaining = requestedSize;
+
+        //iterate backwards: if we are oversized, emptied slots are removed and only later indices shift.
+        int[] slots = entry.getSlots().toIntArray();
+        for (int i = slots.length - 1; i >= 0 && remaining > 0; i--) {
+            //the index key ignores capabilities, stacks with different capabilities must not be merged into one result
+            ItemStack reference = capsReference != null ? capsReference : firstMatchedStack;
+            if (!reference.isEmpty() && !this.stacks.get(slots[i]).areCapsCompatible(reference))
+                continue;
+
+            ItemStack extractedStack = this.extractItem(slots[i], remaining, simulate);
+            if (extractedStack.isEmpty())
+                continue;
+
+            if (firstMatchedStack.isEmpty())
+                firstMatchedStack = extractedStack.copy();
+            remaining -= extractedStack.getCount();
+        }
+
+        //set the exact output count and return.
+        if (!firstMatchedStack.isEmpty())
+            firstMatchedStack.setCount(requestedSize - remaining);
+        return firstMatchedStack;
     }
 
 }
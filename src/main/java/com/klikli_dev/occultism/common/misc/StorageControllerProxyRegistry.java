@@ -0,0 +1,163 @@
+/*
+ * MIT License
+ *
+ * Copyright 2023 klikli-dev
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.klikli_dev.occultism.common.misc;
+
+import com.klikli_dev.occultism.api.common.blockentity.IStorageControllerProxy;
+import com.klikli_dev.occultism.api.common.data.GlobalBlockPos;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.LevelAccessor;
+import net.minecraft.world.level.block.entity.BlockEntity;
+
+import java.util.*;
+
+/**
+ * Keeps track of all loaded storage controller proxies (controllers and wormholes) by linked controller and chunk,
+ * so spirits can find the nearest access point to their controller without scanning every block in their work area.
+ * Proxies register themselves when loaded or relinked and unregister when removed or unloaded.
+ */
+public class StorageControllerProxyRegistry {
+
+    /**
+     * Loaded proxies by chunk, by linked controller, by level.
+     */
+    private static final Map<LevelAccessor, Map<GlobalBlockPos, Long2ObjectMap<Set<BlockEntity>>>> PROXIES = new WeakHashMap<>();
+
+    /**
+     * The controller each proxy is currently registered for, so relinking can move it.
+     */
+    private static final Map<BlockEntity, GlobalBlockPos> REGISTERED = new WeakHashMap<>();
+
+    /**
+     * Registers the proxy for its currently linked controller, or moves it there if it was registered for another one.
+     * Unlinked proxies are not tracked.
+     *
+     * @param level the level.
+     * @param proxy the proxy block entity.
+     */
+    public static <T extends BlockEntity & IStorageControllerProxy> void register(LevelAccessor level, T proxy) {
+        GlobalBlockPos linkedPosition = proxy.getLinkedStorageControllerPosition();
+        if (Objects.equals(REGISTERED.get(proxy), linkedPosition))
+            return;
+
+        unregister(level, proxy);
+        if (linkedPosition == null)
+            return;
+
+        PROXIES.computeIfAbsent(level, l -> new HashMap<>())
+                .computeIfAbsent(linkedPosition, p -> new Long2ObjectOpenHashMap<>())
+                .computeIfAbsent(ChunkPos.asLong(proxy.getBlockPos()), c -> new LinkedHashSet<>())
+                .add(proxy);
+        REGISTERED.put(proxy, linkedPosition);
+    }
+
+    public static void unregister(LevelAccessor level, BlockEntity proxy) {
+        GlobalBlockPos linkedPosition = REGISTERED.remove(proxy);
+        if (linkedPosition == null)
+            return;
+
+        Map<GlobalBlockPos, Long2ObjectMap<Set<BlockEntity>>> proxiesByController = PROXIES.get(level);
+        if (proxiesByController == null)
+            return;
+
+        Long2ObjectMap<Set<BlockEntity>> proxiesByChunk = proxiesByController.get(linkedPosition);
+        if (proxiesByChunk == null)
+            return;
+
+        long chunk = ChunkPos.asLong(proxy.getBlockPos());
+        Set<BlockEntity> proxies = proxiesByChunk.get(chunk);
+        if (proxies != null) {
+            proxies.remove(proxy);
+            if (proxies.isEmpty())
+                proxiesByChunk.remove(chunk);
+        }
+        if (proxiesByChunk.isEmpty())
+            proxiesByController.remove(linkedPosition);
+    }
+
+    /**
+     * Gets all loaded proxies linked to the given controller within the given box.
+     *
+     * @param level              the level.
+     * @param controllerPosition the linked storage controller position.
+     * @param min                the minimum corner, inclusive.
+     * @param max                the maximum corner, inclusive.
+     * @return the proxies in the box.
+     */
+    public static List<BlockEntity> getProxies(LevelAccessor level, GlobalBlockPos controllerPosition, BlockPos min, BlockPos max) {
+        Map<GlobalBlockPos, Long2ObjectMap<Set<BlockEntity>>> proxiesByController = PROXIES.get(level);
+        if (proxiesByController == null || controllerPosition == null)
+            return new ArrayList<>();
+
+        Long2ObjectMap<Set<BlockEntity>> proxiesByChunk = proxiesByController.get(controllerPosition);
+        if (proxiesByChunk == null)
+            return new ArrayList<>();
+
+        List<BlockEntity> result = new ArrayList<>();
+        for (int chunkX = SectionPos.blockToSectionCoord(min.getX()); chunkX <= SectionPos.blockToSectionCoord(max.getX()); chunkX++) {
+            for (int chunkZ = SectionPos.blockToSectionCoord(min.getZ()); chunkZ <= SectionPos.blockToSectionCoord(max.getZ()); chunkZ++) {
+                Set<BlockEntity> proxies = proxiesByChunk.get(ChunkPos.asLong(chunkX, chunkZ));
+                if (proxies == null)
+                    continue;
+
+                for (BlockEntity proxy : proxies) {
+                    BlockPos pos = proxy.getBlockPos();
+                    if (!proxy.isRemoved() &&
+                            pos.getX() >= min.getX() && pos.getX() <= max.getX() &&
+                            pos.getY() >= min.getY() && pos.getY() <= max.getY() &&
+                            pos.getZ() >= min.getZ() && pos.getZ() <= max.getZ())
+                        result.add(proxy);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the loaded proxy linked to the given controller within the given box that sorts first.
+     *
+     * @param level              the level.
+     * @param controllerPosition the linked storage controller position.
+     * @param min                the minimum corner, inclusive.
+     * @param max                the maximum corner, inclusive.
+     * @param sorter             the position sorter, usually by distance.
+     * @return the closest proxy, or null if there is none.
+     */
+    public static BlockEntity getClosestProxy(LevelAccessor level, GlobalBlockPos controllerPosition, BlockPos min, BlockPos max, Comparator<BlockPos> sorter) {
+        BlockEntity closest = null;
+        for (BlockEntity proxy : getProxies(level, controllerPosition, min, max)) {
+            if (closest == null || sorter.compare(proxy.getBlockPos(), closest.getBlockPos()) < 0)
+                closest = proxy;
+        }
+        return closest;
+    }
+
+    public static void clear() {
+        PROXIES.clear();
+        REGISTERED.clear();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * MIT License
+ *
+ * Copyright 2023 klikli-dev
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.klikli_dev.occultism.common.misc;
+
+import com.klikli_dev.occultism.common.blockentity.StorageControllerBlockEntity;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects storage controllers whose contents changed during a tick and sends their stack updates to all open
+ * viewers once at the end of the tick, so multiple changes and multiple viewers share a single encoded update.
+ */
+public class StorageControllerUpdateBroadcaster {
+
+    private static final Set<StorageControllerBlockEntity> PENDING = new LinkedHashSet<>();
+
+    /**
+     * Schedules a stack update for all viewers of the given controller at the end of the current tick.
+     *
+     * @param storageController the changed controller.
+     */
+    public static void markDirty(StorageControllerBlockEntity storageController) {
+        PENDING.add(storageController);
+    }
+
+    /**
+     * Sends the pending updates. Called at the end of each server tick.
+     */
+    public static void broadcastPending() {
+        if (PENDING.isEmpty())
+            return;
+
+        //copy first, broadcasting may cause controllers to be marked again.
+        List<StorageControllerBlockEntity> pending = new ArrayList<>(PENDING);
+        PENDING.clear();
+        for (StorageControllerBlockEntity storageController : pending) {
+            if (!storageController.isRemoved())
+                storageController.broadcastStacks();
+        }
+    }
+
+    public static void clear() {
+        PENDING.clear();
+    }
+}
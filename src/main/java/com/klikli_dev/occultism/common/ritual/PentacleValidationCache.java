@@ -0,0 +1,164 @@
+/*
+ * MIT License
+ *
+ * Copyright 2023 klikli-dev
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.klikli_dev.occultism.common.ritual;
+
+import com.klikli_dev.modonomicon.api.multiblock.Multiblock;
+import com.klikli_dev.modonomicon.api.multiblock.Multiblock.SimulateResult;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.LevelAccessor;
+import net.minecraft.world.level.block.Rotation;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Caches a successful pentacle validation around a golden bowl, so running rituals do not validate the multiblock every tick.
+ * The cache watches all positions of the matched pentacle and is invalidated when a block inside it changes.
+ */
+public class PentacleValidationCache {
+
+    /**
+     * Validated pentacles are checked again after this many ticks, to catch changes that did not fire a block event.
+     */
+    public static final int REVALIDATION_INTERVAL = 20 * 5;
+
+    /**
+     * Caches watching each block position, by level.
+     */
+    private static final Map<LevelAccessor, Long2ObjectMap<Set<PentacleValidationCache>>> WATCHERS = new WeakHashMap<>();
+
+    protected Level level;
+    protected Multiblock pentacle;
+    protected Rotation rotation;
+    protected LongSet positions = new LongOpenHashSet();
+    protected long validatedTime;
+
+    /**
+     * Invalidates all caches watching the given position.
+     *
+     * @param level the level the block changed in.
+     * @param pos   the position of the changed block.
+     */
+    public static void onBlockChanged(LevelAccessor level, BlockPos pos) {
+        if (WATCHERS.isEmpty())
+            return;
+
+        Long2ObjectMap<Set<PentacleValidationCache>> watchers = WATCHERS.get(level);
+        if (watchers == null)
+            return;
+
+        Set<PentacleValidationCache> caches = watchers.get(pos.asLong());
+        if (caches != null) {
+            //copy, invalidating removes the cache from the set
+            for (PentacleValidationCache cache : new ArrayList<>(caches)) {
+                cache.invalidate();
+            }
+        }
+    }
+
+    public static void clear() {
+        WATCHERS.clear();
+    }
+
+    //region Getter / Setter
+
+    /**
+     * @return the rotation the pentacle was matched with, or null if nothing is cached.
+     */
+    @Nullable
+    public Rotation getRotation() {
+        return this.rotation;
+    }
+
+    //endregion Getter / Setter
+
+    /**
+     * Checks if the pentacle is valid at the given position, using the cached result if possible.
+     *
+     * @param level    the level.
+     * @param pos      the position of the golden bowl.
+     * @param pentacle the pentacle to validate.
+     * @return true if the pentacle is valid.
+     */
+    public boolean isValid(Level level, BlockPos pos, Multiblock pentacle) {
+        if (this.pentacle == pentacle && this.level == level &&
+                level.getGameTime() - this.validatedTime < REVALIDATION_INTERVAL)
+            return true;
+
+        this.invalidate();
+        Rotation rotation = pentacle.validate(level, pos);
+        if (rotation == null)
+            return false;
+
+        this.level = level;
+        this.pentacle = pentacle;
+        this.rotation = rotation;
+        this.validatedTime = level.getGameTime();
+        for (SimulateResult result : pentacle.simulate(level, pos, rotation, false, false).getSecond()) {
+            this.positions.add(result.getWorldPosition().asLong());
+        }
+        //the golden bowl notifies its own neighbors while running, and invalidates the cache itself when removed.
+        this.positions.remove(pos.asLong());
+        this.watch();
+        return true;
+    }
+
+    /**
+     * Forgets the cached result and stops watching the pentacle positions.
+     */
+    public void invalidate() {
+        if (this.level != null) {
+            Long2ObjectMap<Set<PentacleValidationCache>> watchers = WATCHERS.get(this.level);
+            if (watchers != null) {
+                for (long position : this.positions) {
+                    Set<PentacleValidationCache> caches = watchers.get(position);
+                    if (caches != null) {
+                        caches.remove(this);
+                        if (caches.isEmpty())
+                            watchers.remove(position);
+                    }
+                }
+                if (watchers.isEmpty())
+                    WATCHERS.remove(this.level);
+            }
+        }
+        this.level = null;
+        this.pentacle = null;
+        this.rotation = null;
+        this.positions.clear();
+    }
+
+    protected void watch() {
+        Long2ObjectMap<Set<PentacleValidationCache>> watchers =
+                WATCHERS.computeIfAbsent(this.level, level -> new Long2ObjectOpenHashMap<>());
+        for (long position : this.positions) {
+            watchers.computeIfAbsent(position, p -> new HashSet<>()).add(this);
+        }
+    }
+}
@@ -22,6 +22,7 @@
 
 package com.klikli_dev.occultism.common.ritual;
 
+import com.klikli_dev.modonomicon.api.multiblock.Multiblock;
 import com.klikli_dev.occultism.Occultism;
 import com.klikli_dev.occultism.common.blockentity.GoldenSacrificialBowlBlockEntity;
 import com.klikli_dev.occultism.common.blockentity.SacrificialBowlBlockEntity;
@@ -42,13 +43,14 @@ import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.crafting.Ingredient;
 import net.minecraft.world.level.Level;
-import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraftforge.event.entity.player.PlayerInteractEvent;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public abstract class Ritual {
@@ -173,7 +175,8 @@ public abstract class Ritual {
                            List<Ingredient> remainingAdditionalIngredients) {
         return this.recipe.getPentacle() != null && this.recipe.getActivationItem().test(activationItem) &&
                 this.areAdditionalIngredientsFulfilled(level, goldenBowlPosition, remainingAdditionalIngredients) &&
-                this.recipe.getPentacle().validate(level, goldenBowlPosition) != null;
+                (blockEntity != null ? blockEntity.isPentacleValid(this.recipe.getPentacle()) :
+                        this.recipe.getPentacle().validate(level, goldenBowlPosition) != null);
     }
 
     /**
@@ -270,9 +273,26 @@ public abstract class Ritual {
      * @return true if the ritual matches, false otherwise.
      */
     public boolean identify(Level level, BlockPos goldenBowlPosition, ItemStack activationItem) {
-        return this.recipe.getPentacle() != null && this.recipe.getActivationItem().test(activationItem) &&
+        return this.identify(level, goldenBowlPosition, activationItem, new HashMap<>());
+    }
+
+    /**
+     * Identifies the ritual by it's activation item, pentacle shape and ingredients.
+     * Pentacle validation results are shared, so identifying multiple rituals validates each pentacle only once.
+     *
+     * @param level              the level.
+     * @param goldenBowlPosition the position of the golden bowl.
+     * @param activationItem     the item used to start the ritual.
+     * @param validatedPentacles pentacle validation results by pentacle id, new results are added.
+     * @return true if the ritual matches, false otherwise.
+     */
+    public boolean identify(Level level, BlockPos goldenBowlPosition, ItemStack activationItem,
+                            Map<ResourceLocation, Boolean> validatedPentacles) {
+        Multiblock pentacle = this.recipe.getPentacle();
+        return pentacle != null && this.recipe.getActivationItem().test(activationItem) &&
                 this.areAdditionalIngredientsFulfilled(level, goldenBowlPosition, this.recipe.getIngredients()) &&
-                this.recipe.getPentacle().validate(level, goldenBowlPosition) != null;
+                validatedPentacles.computeIfAbsent(this.recipe.getPentacleId(),
+                        id -> pentacle.validate(level, goldenBowlPosition) != null);
     }
 
     /**
@@ -454,17 +474,10 @@ public abstract class Ritual {
         yBowlRangeTop++;
         yBowlRangeBottom++;
 
-        List<SacrificialBowlBlockEntity> result = new ArrayList<>();
-        Iterable<BlockPos> blocksToCheck = BlockPos.betweenClosed(
+        List<SacrificialBowlBlockEntity> result = SacrificialBowlRegistry.getBowls(level,
                 goldenBowlPosition.offset(-SACRIFICIAL_BOWL_RANGE, -yBowlRangeBottom, -SACRIFICIAL_BOWL_RANGE),
                 goldenBowlPosition.offset(SACRIFICIAL_BOWL_RANGE, yBowlRangeTop, SACRIFICIAL_BOWL_RANGE));
-        for (BlockPos blockToCheck : blocksToCheck) {
-            BlockEntity blockEntity = level.getBlockEntity(blockToCheck);
-            if (blockEntity instanceof SacrificialBowlBlockEntity &&
-                    !(blockEntity instanceof GoldenSacrificialBowlBlockEntity)) {
-                result.add((SacrificialBowlBlockEntity) blockEntity);
-            }
-        }
+        result.removeIf(bowl -> bowl instanceof GoldenSacrificialBowlBlockEntity);
         return result;
     }
 
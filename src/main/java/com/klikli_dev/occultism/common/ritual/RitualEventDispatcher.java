@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ *
+ * Copyright 2023 klikli-dev
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.klikli_dev.occultism.common.ritual;
+
+import com.klikli_dev.occultism.common.blockentity.GoldenSacrificialBowlBlockEntity;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.LevelAccessor;
+import net.minecraftforge.event.entity.living.LivingDeathEvent;
+import net.minecraftforge.event.entity.player.PlayerInteractEvent;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Routes the events running rituals wait for to the rituals in range, instead of every ritual listening to every event.
+ * Running rituals are kept by chunk, so only rituals in chunks within detection range of the event are notified.
+ */
+public class RitualEventDispatcher {
+
+    /**
+     * Running rituals by chunk, by level.
+     */
+    private static final Map<LevelAccessor, Long2ObjectMap<Set<GoldenSacrificialBowlBlockEntity>>> RITUALS = new WeakHashMap<>();
+
+    public static void register(GoldenSacrificialBowlBlockEntity bowl) {
+        if (bowl.getLevel() == null || bowl.getLevel().isClientSide)
+            return;
+
+        RITUALS.computeIfAbsent(bowl.getLevel(), l -> new Long2ObjectOpenHashMap<>())
+                .computeIfAbsent(ChunkPos.asLong(bowl.getBlockPos()), c -> new LinkedHashSet<>())
+                .add(bowl);
+    }
+
+    public static void unregister(GoldenSacrificialBowlBlockEntity bowl) {
+        Long2ObjectMap<Set<GoldenSacrificialBowlBlockEntity>> ritualsByChunk = RITUALS.get(bowl.getLevel());
+        if (ritualsByChunk == null)
+            return;
+
+        long chunk = ChunkPos.asLong(bowl.getBlockPos());
+        Set<GoldenSacrificialBowlBlockEntity> rituals = ritualsByChunk.get(chunk);
+        if (rituals != null) {
+            rituals.remove(bowl);
+            if (rituals.isEmpty())
+                ritualsByChunk.remove(chunk);
+        }
+    }
+
+    public static void onLivingDeath(LivingDeathEvent event) {
+        dispatch(event.getEntity().level(), event.getEntity().blockPosition(), Ritual.SACRIFICE_DETECTION_RANGE,
+                bowl -> bowl.onLivingDeath(event));
+    }
+
+    public static void onRightClickItem(PlayerInteractEvent.RightClickItem event) {
+        dispatch(event.getLevel(), event.getPos(), Ritual.ITEM_USE_DETECTION_RANGE,
+                bowl -> bowl.onPlayerRightClickItem(event));
+    }
+
+    public static void clear() {
+        RITUALS.clear();
+    }
+
+    protected static void dispatch(LevelAccessor level, BlockPos pos, int range,
+                                   Consumer<GoldenSacrificialBowlBlockEntity> listener) {
+        //rituals only register on the server, and reading the weak map from the client thread would modify it
+        if (level.isClientSide() || RITUALS.isEmpty())
+            return;
+
+        Long2ObjectMap<Set<GoldenSacrificialBowlBlockEntity>> ritualsByChunk = RITUALS.get(level);
+        if (ritualsByChunk == null)
+            return;
+
+        //the bowls check the exact distance themselves, here we only skip chunks out of range.
+        //collect first, listeners may stop rituals and unregister them
+        List<GoldenSacrificialBowlBlockEntity> inRange = new ArrayList<>();
+        int minChunkX = SectionPos.blockToSectionCoord(pos.getX() - range);
+        int maxChunkX = SectionPos.blockToSectionCoord(pos.getX() + range);
+        int minChunkZ = SectionPos.blockToSectionCoord(pos.getZ() - range);
+        int maxChunkZ = SectionPos.blockToSectionCoord(pos.getZ() + range);
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                Set<GoldenSacrificialBowlBlockEntity> rituals = ritualsByChunk.get(ChunkPos.asLong(chunkX, chunkZ));
+                if (rituals != null)
+                    inRange.addAll(rituals);
+            }
+        }
+        for (GoldenSacrificialBowlBlockEntity bowl : inRange) {
+            listener.accept(bowl);
+        }
+    }
+}
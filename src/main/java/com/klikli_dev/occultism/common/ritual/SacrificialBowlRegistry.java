@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright 2023 klikli-dev
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.klikli_dev.occultism.common.ritual;
+
+import com.klikli_dev.occultism.common.blockentity.SacrificialBowlBlockEntity;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.LevelAccessor;
+
+import java.util.*;
+
+/**
+ * Keeps track of all loaded sacrificial bowls by chunk, so rituals can find bowls in range without scanning every block.
+ * Bowls register themselves when loaded and unregister when removed or unloaded.
+ */
+public class SacrificialBowlRegistry {
+
+    /**
+     * Loaded bowls by chunk, by level.
+     */
+    private static final Map<LevelAccessor, Long2ObjectMap<Set<SacrificialBowlBlockEntity>>> BOWLS = new WeakHashMap<>();
+
+    public static void register(LevelAccessor level, SacrificialBowlBlockEntity bowl) {
+        BOWLS.computeIfAbsent(level, l -> new Long2ObjectOpenHashMap<>())
+                .computeIfAbsent(ChunkPos.asLong(bowl.getBlockPos()), c -> new LinkedHashSet<>())
+                .add(bowl);
+    }
+
+    public static void unregister(LevelAccessor level, SacrificialBowlBlockEntity bowl) {
+        Long2ObjectMap<Set<SacrificialBowlBlockEntity>> bowlsByChunk = BOWLS.get(level);
+        if (bowlsByChunk == null)
+            return;
+
+        long chunk = ChunkPos.asLong(bowl.getBlockPos());
+        Set<SacrificialBowlBlockEntity> bowls = bowlsByChunk.get(chunk);
+        if (bowls != null) {
+            bowls.remove(bowl);
+            if (bowls.isEmpty())
+                bowlsByChunk.remove(chunk);
+        }
+    }
+
+    /**
+     * Gets all loaded sacrificial bowls within the given box.
+     *
+     * @param level the level.
+     * @param min   the minimum corner, inclusive.
+     * @param max   the maximum corner, inclusive.
+     * @return the bowls in the box.
+     */
+    public static List<SacrificialBowlBlockEntity> getBowls(LevelAccessor level, BlockPos min, BlockPos max) {
+        Long2ObjectMap<Set<SacrificialBowlBlockEntity>> bowlsByChunk = BOWLS.get(level);
+        if (bowlsByChunk == null)
+            return new ArrayList<>();
+
+        List<SacrificialBowlBlockEntity> result = new ArrayList<>();
+        for (int chunkX = SectionPos.blockToSectionCoord(min.getX()); chunkX <= SectionPos.blockToSectionCoord(max.getX()); chunkX++) {
+            for (int chunkZ = SectionPos.blockToSectionCoord(min.getZ()); chunkZ <= SectionPos.blockToSectionCoord(max.getZ()); chunkZ++) {
+                Set<SacrificialBowlBlockEntity> bowls = bowlsByChunk.get(ChunkPos.asLong(chunkX, chunkZ));
+                if (bowls == null)
+                    continue;
+
+                for (SacrificialBowlBlockEntity bowl : bowls) {
+                    BlockPos pos = bowl.getBlockPos();
+                    if (!bowl.isRemoved() &&
+                            pos.getX() >= min.getX() && pos.getX() <= max.getX() &&
+                            pos.getY() >= min.getY() && pos.getY() <= max.getY() &&
+                            pos.getZ() >= min.getZ() && pos.getZ() <= max.getZ())
+                        result.add(bowl);
+                }
+            }
+        }
+        return result;
+    }
+
+    public static void clear() {
+        BOWLS.clear();
+    }
+}
@@ -75,6 +75,7 @@ public class OccultismServerConfig {
         public final ConfigValue<Integer> blacksmithFamiliarUpgradeCost;
         public final ConfigValue<Integer> blacksmithFamiliarUpgradeCooldown;
         public final ConfigValue<Double> blacksmithFamiliarRepairChance;
+        public final ConfigValue<Integer> tickBudgetMicroseconds;
 
         public SpiritJobSettings(ForgeConfigSpec.Builder builder) {
             builder.comment("Spirit Job Settings").push("spirit_job");
@@ -135,6 +136,10 @@ public class OccultismServerConfig {
                                     "The cooldown for a blacksmith familiar to upgrade another familiar.")
                             .define("blacksmithFamiliarUpgradeCooldown", 20 * 20);
 
+            this.tickBudgetMicroseconds =
+                    builder.comment(
+                                    "The time in microseconds all spirits together may spend on job updates and sensor scans per tick before low priority work (idle rescans, particles) is deferred. 0 disables the budget.")
+                            .defineInRange("tickBudgetMicroseconds", 2000, 0, Integer.MAX_VALUE);
 
             builder.pop();
         }
@@ -145,10 +150,16 @@ public class OccultismServerConfig {
         public final MinerSpiritSettings minerDjinniOres;
         public final MinerSpiritSettings minerAfritDeeps;
         public final MinerSpiritSettings minerMaridMaster;
+        public final BooleanValue deepThroughputMode;
 
         public DimensionalMineshaftSettings(ForgeConfigSpec.Builder builder) {
             builder.comment("Dimensional Mineshaft Settings").push("dimensional_mineshaft");
 
+            this.deepThroughputMode =
+                    builder.comment(
+                                    "If true, mineshafts compute completion from game time instead of counting ticks, only sync progress to players viewing them and catch up on operations missed while their chunk was unloaded.")
+                            .define("deepThroughputMode", false);
+
             this.minerFoliotUnspecialized =
                     new MinerSpiritSettings("miner_foliot_unspecialized", builder, 400, 1, 1000);
 
@@ -255,6 +266,7 @@ public class OccultismServerConfig {
         public final ConfigValue<Integer> controllerBaseSlots;
         public final ConfigValue<Integer> controllerStackSize;
         public final BooleanValue overrideItemStackSizes;
+        public final BooleanValue virtualStorage;
         public final BooleanValue unlinkWormholeOnBreak;
 
         public StorageSettings(ForgeConfigSpec.Builder builder) {
@@ -283,6 +295,13 @@ public class OccultismServerConfig {
                                             "item type (such as 16 for ender pearls, 64 for iron ingot). WARNING: Setting this to " +
                                             "false may have a negative impact on performance.")
                             .define("overrideItemStackSizes", true);
+            this.virtualStorage =
+                    builder.comment(
+                                    "True to store each distinct item in a single slot without a stack size limit. " +
+                                            "The slots then limit the amount of distinct items, and slots * controllerStackSize " +
+                                            "limits the total amount of items. Reduces memory use and lookup cost for large " +
+                                            "amounts of the same items. Existing storage is kept, split stacks merge as they are taken out.")
+                            .define("virtualStorage", false);
             this.unlinkWormholeOnBreak =
                     builder.comment(
                                     "True to use the configured controllerStackSize for all items, instead of the stack sizes provided by " +
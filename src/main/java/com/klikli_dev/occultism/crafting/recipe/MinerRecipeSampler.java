@@ -0,0 +1,148 @@
+/*
+ * MIT License
+ *
+ * Copyright 2023 klikli-dev
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.klikli_dev.occultism.crafting.recipe;
+
+import com.klikli_dev.occultism.common.misc.WeightedOutputIngredient;
+import com.klikli_dev.occultism.registry.OccultismRecipes;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.crafting.RecipeManager;
+import net.minecraft.world.level.Level;
+import net.minecraftforge.items.ItemStackHandler;
+import net.minecraftforge.items.wrapper.RecipeWrapper;
+
+import java.util.*;
+
+/**
+ * Samples the weighted outputs of all miner recipes for one input item in constant time per roll, using Walker's alias method.
+ * Samplers are cached per input item and recipe manager, so they are rebuilt automatically when datapacks are reloaded.
+ */
+public class MinerRecipeSampler {
+
+    private static final Map<RecipeManager, Map<Item, MinerRecipeSampler>> SAMPLERS = new WeakHashMap<>();
+
+    protected final WeightedOutputIngredient[] outputs;
+    protected final double[] probabilities;
+    protected final int[] aliases;
+
+    public MinerRecipeSampler(List<WeightedOutputIngredient> outputs) {
+        List<WeightedOutputIngredient> weightedOutputs = outputs.stream().filter(o -> o.getWeight().asInt() > 0).toList();
+        this.outputs = weightedOutputs.toArray(WeightedOutputIngredient[]::new);
+        this.probabilities = new double[this.outputs.length];
+        this.aliases = new int[this.outputs.length];
+
+        int count = this.outputs.length;
+        long totalWeight = 0;
+        for (WeightedOutputIngredient output : this.outputs)
+            totalWeight += output.getWeight().asInt();
+
+        //scale weights so the average is 1, then pair each underfull column with an overfull one
+        double[] scaled = new double[count];
+        Deque<Integer> small = new ArrayDeque<>();
+        Deque<Integer> large = new ArrayDeque<>();
+        for (int i = 0; i < count; i++) {
+            scaled[i] = (double) this.outputs[i].getWeight().asInt() * count / totalWeight;
+            if (scaled[i] < 1)
+                small.push(i);
+            else
+                large.push(i);
+        }
+
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int less = small.pop();
+            int more = large.pop();
+            this.probabilities[less] = scaled[less];
+            this.aliases[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1;
+            if (scaled[more] < 1)
+                small.push(more);
+            else
+                large.push(more);
+        }
+        //whatever remains is full within floating point error
+        while (!large.isEmpty())
+            this.probabilities[large.pop()] = 1;
+        while (!small.isEmpty())
+            this.probabilities[small.pop()] = 1;
+    }
+
+    /**
+     * Gets the sampler for the given miner input.
+     * Like the mineshaft always did, results are cached by input item, the first stack seen for an item decides the recipes.
+     *
+     * @param level the level.
+     * @param input the miner input stack.
+     * @return the sampler, empty if no miner recipe accepts the input.
+     */
+    public static MinerRecipeSampler get(Level level, ItemStack input) {
+        RecipeManager recipeManager = level.getRecipeManager();
+        return SAMPLERS.computeIfAbsent(recipeManager, manager -> new HashMap<>())
+                .computeIfAbsent(input.getItem(), item -> {
+                    ItemStackHandler handler = new ItemStackHandler(1);
+                    handler.setStackInSlot(0, input.copy());
+                    List<MinerRecipe> recipes = recipeManager.getRecipesFor(OccultismRecipes.MINER_TYPE.get(),
+                            new RecipeWrapper(handler), level);
+                    return new MinerRecipeSampler(recipes.stream().map(MinerRecipe::getWeightedOutput).toList());
+                });
+    }
+
+    public boolean isEmpty() {
+        return this.outputs.length == 0;
+    }
+
+    /**
+     * Rolls a single weighted output.
+     *
+     * @param random the random source.
+     * @return the output, or empty if there are no outputs.
+     */
+    public Optional<WeightedOutputIngredient> sample(RandomSource random) {
+        if (this.isEmpty())
+            return Optional.empty();
+        return Optional.of(this.outputs[this.sampleIndex(random)]);
+    }
+
+    /**
+     * Rolls multiple times and aggregates the results.
+     *
+     * @param random the random source.
+     * @param rolls  the number of rolls.
+     * @return the rolled outputs with the number of times each was rolled, in order of first roll.
+     */
+    public Map<WeightedOutputIngredient, Integer> sample(RandomSource random, int rolls) {
+        Map<WeightedOutputIngredient, Integer> results = new LinkedHashMap<>();
+        if (this.isEmpty())
+            return results;
+
+        for (int i = 0; i < rolls; i++)
+            results.merge(this.outputs[this.sampleIndex(random)], 1, Integer::sum);
+        return results;
+    }
+
+    protected int sampleIndex(RandomSource random) {
+        int column = random.nextInt(this.outputs.length);
+        return random.nextDouble() < this.probabilities[column] ? column : this.aliases[column];
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ *
+ * Copyright 2023 klikli-dev
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.klikli_dev.occultism.crafting.recipe;
+
+import com.klikli_dev.occultism.registry.OccultismRecipes;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.crafting.RecipeManager;
+import net.minecraft.world.level.Level;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Looks up ritual recipes by activation item and pentacle instead of testing every ritual recipe.
+ * An index is built per recipe manager, so it is rebuilt automatically when datapacks are reloaded.
+ */
+public class RitualRecipeIndex {
+
+    private static final Map<RecipeManager, RitualRecipeIndex> INDEXES = new WeakHashMap<>();
+
+    protected final List<RitualRecipe> recipes;
+    protected final Map<RitualRecipe, Integer> recipeOrder = new HashMap<>();
+    protected final Map<Item, List<RitualRecipe>> recipesByActivationItem = new HashMap<>();
+    /**
+     * Recipes whose activation ingredient does not list its items, these are always candidates.
+     */
+    protected final List<RitualRecipe> unindexedRecipes = new ArrayList<>();
+    protected final Map<ResourceLocation, List<RitualRecipe>> recipesByPentacle = new LinkedHashMap<>();
+
+    public RitualRecipeIndex(List<RitualRecipe> recipes) {
+        this.recipes = recipes;
+        for (RitualRecipe recipe : recipes) {
+            this.recipeOrder.put(recipe, this.recipeOrder.size());
+            this.recipesByPentacle.computeIfAbsent(recipe.getPentacleId(), id -> new ArrayList<>()).add(recipe);
+
+            ItemStack[] activationItems = recipe.getActivationItem().getItems();
+            if (activationItems.length == 0) {
+                this.unindexedRecipes.add(recipe);
+                continue;
+            }
+            Set<Item> items = new HashSet<>();
+            for (ItemStack activationItem : activationItems) {
+                //an ingredient may list the same item multiple times with different nbt
+                if (items.add(activationItem.getItem()))
+                    this.recipesByActivationItem.computeIfAbsent(activationItem.getItem(), item -> new ArrayList<>()).add(recipe);
+            }
+        }
+    }
+
+    /**
+     * Gets the index for the recipes currently loaded in the level.
+     *
+     * @param level the level.
+     * @return the ritual recipe index.
+     */
+    public static RitualRecipeIndex get(Level level) {
+        RecipeManager recipeManager = level.getRecipeManager();
+        return INDEXES.computeIfAbsent(recipeManager,
+                manager -> new RitualRecipeIndex(manager.getAllRecipesFor(OccultismRecipes.RITUAL_TYPE.get())));
+    }
+
+    /**
+     * Finds the first ritual recipe matching the activation item, the pentacle and the items on the sacrificial bowls.
+     *
+     * @param level              the level.
+     * @param goldenBowlPosition the position of the golden bowl.
+     * @param activationItem     the item used to start the ritual.
+     * @param validatedPentacles pentacle validation results by pentacle id, shared between all candidate recipes.
+     *                           Results are added as pentacles are validated, so they can be re-used afterwards.
+     * @return the matching recipe, or null if none matches.
+     */
+    @Nullable
+    public static RitualRecipe findRecipe(Level level, BlockPos goldenBowlPosition, ItemStack activationItem,
+                                          Map<ResourceLocation, Boolean> validatedPentacles) {
+        for (RitualRecipe recipe : get(level).getCandidates(activationItem)) {
+            if (recipe.getRitual().identify(level, goldenBowlPosition, activationItem, validatedPentacles))
+                return recipe;
+        }
+        return null;
+    }
+
+    //region Getter / Setter
+
+    /**
+     * @return the ids of all pentacles used by ritual recipes.
+     */
+    public Set<ResourceLocation> getPentacleIds() {
+        return Collections.unmodifiableSet(this.recipesByPentacle.keySet());
+    }
+
+    /**
+     * @param pentacleId the pentacle id.
+     * @return all recipes using the given pentacle.
+     */
+    public List<RitualRecipe> getRecipesForPentacle(ResourceLocation pentacleId) {
+        return this.recipesByPentacle.getOrDefault(pentacleId, Collections.emptyList());
+    }
+
+    //endregion Getter / Setter
+
+    /**
+     * Gets the recipes that may be activated by the given item, in recipe manager order.
+     *
+     * @param activationItem the item used to start the ritual.
+     * @return the candidate recipes.
+     */
+    public List<RitualRecipe> getCandidates(ItemStack activationItem) {
+        List<RitualRecipe> candidates = this.recipesByActivationItem.getOrDefault(activationItem.getItem(), Collections.emptyList());
+        if (this.unindexedRecipes.isEmpty())
+            return candidates;
+
+        List<RitualRecipe> result = new ArrayList<>(candidates);
+        result.addAll(this.unindexedRecipes);
+        result.sort(Comparator.comparingInt(this.recipeOrder::get));
+        return result;
+    }
+}
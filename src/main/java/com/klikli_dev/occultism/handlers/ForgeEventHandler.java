@@ -23,8 +23,21 @@
 package com.klikli_dev.occultism.handlers;
 
 import com.klikli_dev.occultism.Occultism;
+import com.klikli_dev.occultism.common.entity.ai.sensor.WorkAreaLogIndex;
+import com.klikli_dev.occultism.common.entity.familiar.FamiliarRegistry;
+import com.klikli_dev.occultism.common.entity.job.SpiritJobScheduler;
+import com.klikli_dev.occultism.common.misc.StorageControllerProxyRegistry;
+import com.klikli_dev.occultism.common.misc.StorageControllerUpdateBroadcaster;
+import com.klikli_dev.occultism.common.ritual.PentacleValidationCache;
+import com.klikli_dev.occultism.common.ritual.RitualEventDispatcher;
+import com.klikli_dev.occultism.common.ritual.SacrificialBowlRegistry;
 import com.klikli_dev.occultism.registry.OccultismCommands;
 import net.minecraftforge.event.RegisterCommandsEvent;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.living.LivingDeathEvent;
+import net.minecraftforge.event.entity.player.PlayerInteractEvent;
+import net.minecraftforge.event.level.BlockEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 
@@ -37,5 +50,48 @@ public class ForgeEventHandler {
     public static void registerCommands(RegisterCommandsEvent event) {
         OccultismCommands.register(event.getDispatcher());
     }
+
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.START) {
+            SpiritJobScheduler.onServerTickStart();
+        } else if (event.phase == TickEvent.Phase.END) {
+            StorageControllerUpdateBroadcaster.broadcastPending();
+            SpiritJobScheduler.onServerTickEnd();
+        }
+    }
+
+    @SubscribeEvent
+    public static void onBlockEvent(BlockEvent event) {
+        //some block events, e.g. tool modifications, also fire on the client, the caches are server only
+        if (event.getLevel().isClientSide())
+            return;
+
+        //covers placing, breaking and neighbor updates, any of these can break a pentacle
+        PentacleValidationCache.onBlockChanged(event.getLevel(), event.getPos());
+        WorkAreaLogIndex.onBlockChanged(event.getLevel(), event.getPos());
+    }
+
+    @SubscribeEvent
+    public static void onLivingDeath(LivingDeathEvent event) {
+        RitualEventDispatcher.onLivingDeath(event);
+    }
+
+    @SubscribeEvent
+    public static void onRightClickItem(PlayerInteractEvent.RightClickItem event) {
+        RitualEventDispatcher.onRightClickItem(event);
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        StorageControllerUpdateBroadcaster.clear();
+        StorageControllerProxyRegistry.clear();
+        PentacleValidationCache.clear();
+        SacrificialBowlRegistry.clear();
+        RitualEventDispatcher.clear();
+        WorkAreaLogIndex.clear();
+        SpiritJobScheduler.clear();
+        FamiliarRegistry.clear();
+    }
     //endregion Static Methods
 }
@@ -81,8 +81,7 @@ public class MessageInsertMouseHeldItem extends MessageBase {
             //send new mouse held item to client
             OccultismPackets.sendTo(player, new MessageUpdateMouseHeldItem(result));
 
-            //update the storage controller
-            OccultismPackets.sendTo(player, storageController.getMessageUpdateStacks());
+            //the storage controller stacks are sent to all viewers at the end of the tick
             player.containerMenu.broadcastChanges();
         }
     }
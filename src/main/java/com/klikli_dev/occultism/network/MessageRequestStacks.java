@@ -30,10 +30,20 @@ import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraftforge.network.NetworkEvent;
 
+/**
+ * Requests the stacks of the currently opened storage controller.
+ * By default only the changes since the last sync are sent, a full snapshot can be requested explicitly.
+ */
 public class MessageRequestStacks extends MessageBase {
 
+    private boolean full;
+
     public MessageRequestStacks() {
+        this(false);
+    }
 
+    public MessageRequestStacks(boolean full) {
+        this.full = full;
     }
 
     public MessageRequestStacks(FriendlyByteBuf buf) {
@@ -43,11 +53,12 @@ public class MessageRequestStacks extends MessageBase {
     @Override
     public void onServerReceived(MinecraftServer minecraftServer, ServerPlayer player,
                                  NetworkEvent.Context context) {
-        if (player.containerMenu instanceof IStorageControllerContainer) {
-            IStorageController storageController = ((IStorageControllerContainer) player.containerMenu)
-                    .getStorageController();
+        if (player.containerMenu instanceof IStorageControllerContainer container) {
+            IStorageController storageController = container.getStorageController();
             if (storageController != null) {
-                OccultismPackets.sendTo(player, storageController.getMessageUpdateStacks());
+                if (this.full)
+                    container.invalidateStackSync();
+                container.syncStacks();
                 OccultismPackets
                         .sendTo(player, new MessageUpdateLinkedMachines(storageController.getLinkedMachines()));
                 player.containerMenu.broadcastChanges();
@@ -57,12 +68,12 @@ public class MessageRequestStacks extends MessageBase {
 
     @Override
     public void encode(FriendlyByteBuf buf) {
-
+        buf.writeBoolean(this.full);
     }
 
     @Override
     public void decode(FriendlyByteBuf buf) {
-
+        this.full = buf.readBoolean();
     }
 
 }
@@ -36,7 +36,9 @@ import net.minecraft.world.item.ItemStack;
 import net.minecraftforge.items.wrapper.PlayerMainInvWrapper;
 import net.minecraftforge.network.NetworkEvent;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -70,6 +72,9 @@ public class MessageSetRecipe extends MessageBase {
 
         CraftingContainer craftMatrix = container.getCraftMatrix();
 
+        //comparators for the slots that need to be filled from the network
+        List<ItemStackComparator> networkComparators = new ArrayList<>(9);
+        int[] networkSizes = new int[9];
         for (int slot = 0; slot < 9; slot++) {
             Map<Integer, ItemStack> map = new HashMap<Integer, ItemStack>();
 
@@ -81,6 +86,7 @@ public class MessageSetRecipe extends MessageBase {
             }
 
             //region fill in recipe
+            ItemStackComparator networkComparator = null;
             for (int i = 0; i < map.size(); i++) {
 
                 ItemStack stack = map.get(i);
@@ -98,23 +104,36 @@ public class MessageSetRecipe extends MessageBase {
                     //if we found the desired stack, extract it for real and place it in the matrix
                     StorageUtil.extractItem(new PlayerMainInvWrapper(player.getInventory()), comparator, 1, false);
                     craftMatrix.setItem(slot, extractedStack);
+                    networkComparator = null;
                     break;
                 }
 
-                //if we did not find anything in the player inventory, get it from the network now
-                stack = storageController.getItemStack(!stack.isEmpty() ? comparator : null, 1, false);
-                if (!stack.isEmpty() && craftMatrix.getItem(slot).isEmpty()) {
-                    //if extraction was successful, place it in the matrix
-                    craftMatrix.setItem(slot, stack);
-                    break;
-                }
+                //if we did not find anything in the player inventory, remember the first alternative the network has
+                if (networkComparator == null && storageController.getAvailableAmount(comparator) > 0)
+                    networkComparator = comparator;
             }
+            networkComparators.add(craftMatrix.getItem(slot).isEmpty() ? networkComparator : null);
+            networkSizes[slot] = 1;
             //endregion fill in recipe
         }
+
+        //get everything missing from the network in one go, if that fails fill in whatever is available
+        List<ItemStack> extractedStacks = storageController.getItemStacks(networkComparators, networkSizes, false);
+        for (int slot = 0; slot < 9; slot++) {
+            ItemStackComparator comparator = networkComparators.get(slot);
+            if (comparator == null)
+                continue;
+
+            ItemStack stack = extractedStacks != null ? extractedStacks.get(slot) :
+                    storageController.getItemStack(comparator, 1, false);
+            if (!stack.isEmpty()) {
+                //if extraction was successful, place it in the matrix
+                craftMatrix.setItem(slot, stack);
+            }
+        }
         //sync to client
         container.updateCraftingSlots(true);
-        //finally update controller content for client
-        OccultismPackets.sendTo(player, storageController.getMessageUpdateStacks());
+        //controller content is sent to all viewers at the end of the tick
     }
 
     @Override
@@ -38,6 +38,9 @@ import net.minecraftforge.common.crafting.IShapedRecipe;
 import net.minecraftforge.items.wrapper.PlayerMainInvWrapper;
 import net.minecraftforge.network.NetworkEvent;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Based on https://github.com/Lothrazar/Storage-Network
  */
@@ -71,6 +74,9 @@ public class MessageSetRecipeByID extends MessageBase {
         CraftingContainer craftMatrix = container.getCraftMatrix();
         NonNullList<Ingredient> ingredients = this.getIngredientsForRecipe(recipe);
 
+        //ingredients for the slots that need to be filled from the network
+        List<Ingredient> networkIngredients = new ArrayList<>(9);
+        int[] networkSizes = new int[9];
         for (int slot = 0; slot < 9; slot++) {
             Ingredient ingredient = ingredients.get(slot);
             ItemStack extractedStack = StorageUtil.extractItem(new PlayerMainInvWrapper(player.getInventory()), ingredient,
@@ -80,22 +86,32 @@ public class MessageSetRecipeByID extends MessageBase {
                 //if we found the desired stack, extract it for real and place it in the matrix
                 StorageUtil.extractItem(new PlayerMainInvWrapper(player.getInventory()), ingredient, 1, false);
                 craftMatrix.setItem(slot, extractedStack);
+                networkIngredients.add(null);
                 continue;
             }
 
-            //if we did not find anything in the player inventory, get it from the network now
-            extractedStack = storageController.getOneOfMostCommonItem(ingredient, false);
-            if (!extractedStack.isEmpty() && craftMatrix.getItem(slot).isEmpty()) {
+            //if we did not find anything in the player inventory, get it from the network below
+            networkIngredients.add(!ingredient.isEmpty() && craftMatrix.getItem(slot).isEmpty() ? ingredient : null);
+            networkSizes[slot] = 1;
+        }
+
+        //get everything missing from the network in one go, if that fails fill in whatever is available
+        List<ItemStack> extractedStacks = storageController.getItemStacks(networkIngredients, networkSizes, false);
+        for (int slot = 0; slot < 9; slot++) {
+            Ingredient ingredient = networkIngredients.get(slot);
+            if (ingredient == null)
+                continue;
+
+            ItemStack extractedStack = extractedStacks != null ? extractedStacks.get(slot) :
+                    storageController.getOneOfMostCommonItem(ingredient, false);
+            if (!extractedStack.isEmpty()) {
                 //if extraction was successful, place it in the matrix
                 craftMatrix.setItem(slot, extractedStack);
-                continue;
             }
-            //endregion fill in recipe
         }
         //sync to client
         container.updateCraftingSlots(true);
-        //finally update controller content for client
-        OccultismPackets.sendTo(player, storageController.getMessageUpdateStacks());
+        //controller content is sent to all viewers at the end of the tick
     }
 
     @Override
@@ -22,6 +22,9 @@
 
 package com.klikli_dev.occultism.network;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DecoderException;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraftforge.network.NetworkEvent.Context;
 
@@ -31,7 +34,7 @@ public class MessageSplitPacket {
     /**
      * The payload.
      */
-    private final byte[] payload;
+    private final ByteBuf payload;
     /**
      * Internal communication id. Used to indicate to what wrapped message this belongs to.
      */
@@ -40,25 +43,42 @@ public class MessageSplitPacket {
      * The index of the split message in the wrapped message.
      */
     private final int packetIndex;
+    /**
+     * The number of split messages in the wrapped message.
+     */
+    private final int packetCount;
 
-    public MessageSplitPacket(final int communicationId, final int packetIndex, final byte[] payload) {
+    public MessageSplitPacket(final int communicationId, final int packetIndex, final int packetCount, final ByteBuf payload) {
         this.communicationId = communicationId;
         this.packetIndex = packetIndex;
+        this.packetCount = packetCount;
         this.payload = payload;
     }
 
     public static void encode(MessageSplitPacket message, FriendlyByteBuf buf) {
         buf.writeVarInt(message.communicationId);
         buf.writeVarInt(message.packetIndex);
-        buf.writeByteArray(message.payload);
+        buf.writeVarInt(message.packetCount);
+        buf.writeVarInt(message.payload.readableBytes());
+        buf.writeBytes(message.payload, message.payload.readerIndex(), message.payload.readableBytes());
     }
 
     public static MessageSplitPacket decode(final FriendlyByteBuf buf) {
-        return new MessageSplitPacket(buf.readVarInt(), buf.readVarInt(), buf.readByteArray());
+        int communicationId = buf.readVarInt();
+        int packetIndex = buf.readVarInt();
+        int packetCount = buf.readVarInt();
+        //validate the claimed size before allocating, it comes straight from the other side.
+        int length = buf.readVarInt();
+        if (length < 0 || length > Math.min(PacketSplitter.MAX_PACKET_SIZE, buf.readableBytes()))
+            throw new DecoderException("Invalid split packet part size " + length);
+        //copy out of the network buffer, it is released after handling.
+        byte[] payload = new byte[length];
+        buf.readBytes(payload);
+        return new MessageSplitPacket(communicationId, packetIndex, packetCount, Unpooled.wrappedBuffer(payload));
     }
 
     public static boolean handle(MessageSplitPacket data, Supplier<Context> ctx) {
-        OccultismPackets.addPackagePart(data.communicationId, data.packetIndex, data.payload);
+        OccultismPackets.addPackagePart(ctx.get().getNetworkManager(), data.communicationId, data.packetIndex, data.packetCount, data.payload);
         ctx.get().setPacketHandled(true);
         return true;
     }
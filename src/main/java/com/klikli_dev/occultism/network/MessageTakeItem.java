@@ -103,8 +103,7 @@ public class MessageTakeItem extends MessageBase {
                 }
             }
 
-            //finally, update the storage controller stacks
-            OccultismPackets.sendTo(player, storageController.getMessageUpdateStacks());
+            //the storage controller stacks are sent to all viewers at the end of the tick
             player.containerMenu.broadcastChanges();
         }
     }
@@ -22,6 +22,7 @@
 
 package com.klikli_dev.occultism.network;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.klikli_dev.occultism.api.client.gui.IStorageControllerGui;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
@@ -35,30 +36,57 @@ import net.minecraftforge.network.NetworkEvent;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
 
 /**
  * This message sends the stacks in the currently opened storage controller.
+ * This is the full snapshot, see {@link MessageUpdateStacksDelta} for incremental updates.
  */
 public class MessageUpdateStacks extends MessageBase {
 
     private static final int DEFAULT_BUFFER_SIZE = 2 * 1024;
+    /**
+     * Snapshots with at least this many stacks are serialized and compressed on a worker thread.
+     */
+    private static final int ASYNC_COMPRESSION_THRESHOLD = 256;
+    /**
+     * Bounded pool for compressing large snapshots, if the queue is full the calling thread compresses itself.
+     */
+    private static final ThreadPoolExecutor COMPRESSION_EXECUTOR = createCompressionExecutor();
 
     private List<ItemStack> stacks;
     private int usedSlots;
     private int maxSlots;
+    private long version;
     private ByteBuf payload;
 
     public MessageUpdateStacks(FriendlyByteBuf buf) {
         this.decode(buf);
     }
 
-    public MessageUpdateStacks(List<ItemStack> stacks, int usedSlots, int maxSlots) {
+    public MessageUpdateStacks(List<ItemStack> stacks, int usedSlots, int maxSlots, long version) {
         this.stacks = stacks;
         this.usedSlots = usedSlots;
         this.maxSlots = maxSlots;
-        this.compress();
+        this.version = version;
+    }
+
+    private static ThreadPoolExecutor createCompressionExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(32),
+                new ThreadFactoryBuilder().setNameFormat("Occultism Storage Sync %d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public long getVersion() {
+        return this.version;
     }
 
     @Override
@@ -68,6 +96,7 @@ public class MessageUpdateStacks extends MessageBase {
         if (minecraft.screen instanceof IStorageControllerGui gui) {
             if (gui != null) {
                 gui.setStacks(this.stacks);
+                gui.setStackVersion(this.version);
                 gui.setUsedSlots(this.usedSlots);
                 gui.setMaxSlots(this.maxSlots);
                 gui.markDirty();
@@ -77,8 +106,12 @@ public class MessageUpdateStacks extends MessageBase {
 
     @Override
     public void encode(FriendlyByteBuf buf) {
+        if (this.payload == null)
+            this.compress();
+
         buf.writeVarInt(this.usedSlots);
         buf.writeVarInt(this.maxSlots);
+        buf.writeVarLong(this.version);
 
         //write compressed size, then compressed data
         buf.writeVarInt(this.payload.readableBytes());
@@ -89,6 +122,7 @@ public class MessageUpdateStacks extends MessageBase {
     public void decode(FriendlyByteBuf buf) {
         this.usedSlots = buf.readVarInt();
         this.maxSlots = buf.readVarInt();
+        this.version = buf.readVarLong();
         //read compressed size, then compressed data.
         int compressedSize = buf.readVarInt();
         this.payload = Unpooled.buffer(compressedSize);
@@ -121,6 +155,23 @@ public class MessageUpdateStacks extends MessageBase {
         }
     }
 
+    /**
+     * Serializes and compresses the stacks, large snapshots are handled on a worker thread.
+     * The stacks must not be modified afterwards, so only pass copies that are not shared with the storage.
+     *
+     * @return a future completing with this message once it is ready to send.
+     */
+    public CompletableFuture<MessageUpdateStacks> compressAsync() {
+        if (this.stacks.size() < ASYNC_COMPRESSION_THRESHOLD) {
+            this.compress();
+            return CompletableFuture.completedFuture(this);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            this.compress();
+            return this;
+        }, COMPRESSION_EXECUTOR);
+    }
+
     public void compress() {
         Deflater compressor = new Deflater();
         compressor.setLevel(Deflater.BEST_SPEED);
@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright 2023 klikli-dev
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT
+ * OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.klikli_dev.occultism.network;
+
+import com.klikli_dev.occultism.api.client.gui.IStorageControllerGui;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.client.Minecraft;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.ItemStack;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This message sends the stacks that changed in the currently opened storage controller since the given base version.
+ * Changed stacks carry their new total count, removed stacks are items that are no longer stored at all.
+ * If the client is not at the base version it requests a full snapshot instead.
+ */
+public class MessageUpdateStacksDelta extends MessageBase {
+
+    private List<ItemStack> changedStacks;
+    private List<ItemStack> removedStacks;
+    private int usedSlots;
+    private int maxSlots;
+    private long baseVersion;
+    private long version;
+    /**
+     * The serialized stacks, written once on creation so the message can be sent to multiple players cheaply.
+     */
+    private ByteBuf payload;
+
+    public MessageUpdateStacksDelta(FriendlyByteBuf buf) {
+        this.decode(buf);
+    }
+
+    public MessageUpdateStacksDelta(List<ItemStack> changedStacks, List<ItemStack> removedStacks, int usedSlots,
+                                    int maxSlots, long baseVersion, long version) {
+        this.changedStacks = changedStacks;
+        this.removedStacks = removedStacks;
+        this.usedSlots = usedSlots;
+        this.maxSlots = maxSlots;
+        this.baseVersion = baseVersion;
+        this.version = version;
+        this.serializeStacks();
+    }
+
+    @Override
+    @OnlyIn(Dist.CLIENT)
+    public void onClientReceived(Minecraft minecraft, Player player, NetworkEvent.Context context) {
+        if (minecraft.screen instanceof IStorageControllerGui gui) {
+            if (gui.getStackVersion() != this.baseVersion) {
+                //we missed an update or were never fully synced, so we need the full state.
+                OccultismPackets.sendToServer(new MessageRequestStacks(true));
+                return;
+            }
+
+            gui.applyStackChanges(this.changedStacks, this.removedStacks);
+            gui.setStackVersion(this.version);
+            gui.setUsedSlots(this.usedSlots);
+            gui.setMaxSlots(this.maxSlots);
+            gui.markDirty();
+        }
+    }
+
+    @Override
+    public void encode(FriendlyByteBuf buf) {
+        buf.writeVarInt(this.usedSlots);
+        buf.writeVarInt(this.maxSlots);
+        buf.writeVarLong(this.baseVersion);
+        buf.writeVarLong(this.version);
+
+        buf.writeBytes(this.payload, 0, this.payload.readableBytes());
+    }
+
+    public void serializeStacks() {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        buf.writeVarInt(this.changedStacks.size());
+        for (ItemStack stack : this.changedStacks) {
+            ItemStack toWrite = stack.copy();
+            toWrite.setCount(1);
+            buf.writeItem(toWrite);
+            buf.writeVarInt(stack.getCount());
+        }
+
+        buf.writeVarInt(this.removedStacks.size());
+        for (ItemStack stack : this.removedStacks) {
+            buf.writeItem(stack);
+        }
+        this.payload = buf;
+    }
+
+    @Override
+    public void decode(FriendlyByteBuf buf) {
+        this.usedSlots = buf.readVarInt();
+        this.maxSlots = buf.readVarInt();
+        this.baseVersion = buf.readVarLong();
+        this.version = buf.readVarLong();
+
+        int size = buf.readVarInt();
+        this.changedStacks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ItemStack stack = buf.readItem();
+            stack.setCount(buf.readVarInt());
+            this.changedStacks.add(stack);
+        }
+
+        int removedSize = buf.readVarInt();
+        this.removedStacks = new ArrayList<>(removedSize);
+        for (int i = 0; i < removedSize; i++) {
+            this.removedStacks.add(buf.readItem());
+        }
+    }
+
+}
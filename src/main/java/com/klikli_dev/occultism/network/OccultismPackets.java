@@ -23,6 +23,8 @@
 package com.klikli_dev.occultism.network;
 
 import com.klikli_dev.occultism.Occultism;
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.Connection;
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
@@ -34,7 +36,7 @@ import net.minecraftforge.network.PacketDistributor;
 import net.minecraftforge.network.simple.SimpleChannel;
 
 public class OccultismPackets {
-    public static final String PROTOCOL_VERSION = "1";
+    public static final String PROTOCOL_VERSION = "3";
     public static final ResourceLocation CHANNEL = new ResourceLocation(Occultism.MODID, "main");
     public static final SimpleChannel INSTANCE = NetworkRegistry.newSimpleChannel(
             CHANNEL,
@@ -76,6 +78,12 @@ public class OccultismPackets {
                 MessageUpdateStacks::new,
                 OccultismPacketHandler::handle);
 
+        SPLITTER.registerMessage(nextID(),
+                MessageUpdateStacksDelta.class,
+                MessageUpdateStacksDelta::encode,
+                MessageUpdateStacksDelta::new,
+                OccultismPacketHandler::handle);
+
         INSTANCE.registerMessage(nextID(),
                 MessageSetRecipe.class,
                 MessageSetRecipe::encode,
@@ -253,7 +261,7 @@ public class OccultismPackets {
         }
     }
 
-    public static void addPackagePart(int communicationId, int packetIndex, byte[] payload) {
-        SPLITTER.addPackagePart(communicationId, packetIndex, payload);
+    public static void addPackagePart(Connection connection, int communicationId, int packetIndex, int packetCount, ByteBuf payload) {
+        SPLITTER.addPackagePart(connection, communicationId, packetIndex, packetCount, payload);
     }
 }
@@ -22,8 +22,11 @@
 
 package com.klikli_dev.occultism.network;
 
-import com.google.common.primitives.Bytes;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
+import net.minecraft.Util;
+import net.minecraft.network.Connection;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
@@ -34,22 +37,38 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 public class PacketSplitter {
-    private final static int MAX_PACKET_SIZE = 943718;
-    private static final Map<Integer, Map<Integer, byte[]>> PACKAGE_CACHE = new HashMap<>();
+    final static int MAX_PACKET_SIZE = 943718;
+    /**
+     * Incomplete transfers older than this are dropped.
+     */
+    private final static long TRANSFER_TIMEOUT_MILLIS = 30 * 1000;
+    /**
+     * The max number of incomplete transfers per connection, further transfers are dropped.
+     */
+    private final static int MAX_PENDING_TRANSFERS = 8;
 
     private final ResourceLocation channelId;
     private final SimpleChannel channel;
     private final Map<Integer, ServerPlayer> messageTargets = new HashMap<>();
     private final Map<Integer, Integer> packetMaximums = new HashMap<>();
     private final Set<Class<?>> messagesToSplit = new HashSet<>();
+    /**
+     * Incomplete transfers by communication id, by connection. Connections that are gone are dropped with the weak keys.
+     */
+    private final Map<Connection, Map<Integer, Transfer>> reassemblyTables = new WeakHashMap<>();
     private final int maxNumberOfMessages;
-    private int comId = 0;
+    /**
+     * Starts at a random value, the receiving side cannot tell connections apart when combining (see {@link #takeTransfer(int, int, int)}).
+     */
+    private final AtomicInteger comId = new AtomicInteger(ThreadLocalRandom.current().nextInt());
+    private int maxParts;
     private int id;
 
     public PacketSplitter(int maxNumberOfMessages, SimpleChannel channel, ResourceLocation CHANNEL_ID) {
@@ -91,6 +110,7 @@ public class PacketSplitter {
 
     public <MSG> void registerMessage(int index, int maxNumberOfMessages, Class<MSG> messageType, BiConsumer<MSG, FriendlyByteBuf> encoder, Function<FriendlyByteBuf, MSG> decoder, BiConsumer<MSG, Supplier<NetworkEvent.Context>> messageConsumer) {
         this.packetMaximums.put(index, maxNumberOfMessages);
+        this.maxParts = Math.max(this.maxParts, maxNumberOfMessages);
         this.messagesToSplit.add(messageType);
 
         BiConsumer<MSG, FriendlyByteBuf> wrappedEncoder = (msg, buffer) -> {
@@ -122,31 +142,23 @@ public class PacketSplitter {
             buf.readShort();
 
             //ignore the above as it is not required for the final packet
-            int currentIndex = buf.readerIndex();
-            int packetIndex = 0;
-            final int comId = this.comId++;
-
-            //Data for this packet
-            byte[] packetData = new byte[0];
+            int dataStart = buf.readerIndex();
+            int dataLength = buf.writerIndex() - dataStart;
+            int expectedPackets = (dataLength + MAX_PACKET_SIZE - 1) / MAX_PACKET_SIZE;
+            final int comId = this.comId.getAndIncrement();
 
             int maximumPackets = this.packetMaximums.get(packetId);
-            int expectedPackets = buf.writerIndex() / MAX_PACKET_SIZE + 1;
-            boolean failure = false;
-
-            //Loop while data is available.
-            while (currentIndex < buf.writerIndex()) {
-
-                int sliceSize = Math.min(MAX_PACKET_SIZE, buf.writerIndex() - currentIndex);
-
-                //Extract the sub data array.
-                byte[] subPacketData = Arrays.copyOfRange(buf.array(), currentIndex, currentIndex + sliceSize);
-
-                if (packetIndex == 0) { // Assign Data for first Packet to this packet.
-                    packetData = subPacketData;
-                    packetIndex++;
-                } else {
-                    //Construct the split packet.
-                    var splitPacketMessage = new MessageSplitPacket(comId, packetIndex++, subPacketData);
+            if (expectedPackets > maximumPackets) {
+                //nothing is sent, the receiver will fail to combine and report the error too.
+                LogManager.getLogger().error("Failure Splitting Packets on Channel \"" + this.channelId + "\"." + " with " + MSG.getClass() + ". " +
+                        " Number of Packets required " + expectedPackets + ", maximum number of packets for a message of this type " + maximumPackets);
+            } else {
+                //all data goes into split packets, sliced from the encoded buffer without copying.
+                //sending encodes the split packet right away, so the slices stay valid until we rewrite the buffer below.
+                for (int packetIndex = 0; packetIndex < expectedPackets; packetIndex++) {
+                    int sliceStart = dataStart + packetIndex * MAX_PACKET_SIZE;
+                    int sliceSize = Math.min(MAX_PACKET_SIZE, buf.writerIndex() - sliceStart);
+                    var splitPacketMessage = new MessageSplitPacket(comId, packetIndex, expectedPackets, buf.slice(sliceStart, sliceSize));
 
                     if (playerEntity == null) {
                         this.channel.send(PacketDistributor.SERVER.noArg(), splitPacketMessage);
@@ -154,16 +166,6 @@ public class PacketSplitter {
                         this.channel.send(PacketDistributor.PLAYER.with(() -> playerEntity), splitPacketMessage);
                     }
                 }
-
-                //Move our working index.
-                currentIndex += sliceSize;
-
-                if (packetIndex > maximumPackets) {
-                    LogManager.getLogger().error("Failure Splitting Packets on Channel \"" + this.channelId + "\"." + " with " + MSG.getClass() + ". " +
-                            " Number of Packets sent " + (packetIndex - 1) + ", expected number of Packets " + expectedPackets + ", maximum number of packets for a message of this type " + this.packetMaximums.get(packetId));
-                    failure = true;
-                    break;
-                }
             }
 
             //start writing at the beginning
@@ -172,12 +174,12 @@ public class PacketSplitter {
             //packetId is required for forge to match the packet
             buf.writeByte(packetId);
 
-            //number of packets the packet was split into
-            buf.writeShort(failure ? expectedPackets : packetIndex);
+            //number of packets the packet was split into, followed by what is needed to find and verify them
+            buf.writeShort(expectedPackets);
             buf.writeInt(comId);
-            buf.writeByteArray(packetData);
+            buf.writeInt(dataLength);
 
-            //copies the written data into a new buffer discarding the old one
+            //only the header remains, drop the rest of the buffer
             buf.capacity(buf.writerIndex());
         };
     }
@@ -187,64 +189,125 @@ public class PacketSplitter {
             int size = buf.readShort();
 
             //This packet was not split
-            if (size < 2) return buf;
+            if (size == 0) return buf;
 
             int comId = buf.readInt();
+            int dataLength = buf.readInt();
+
+            ByteBuf data = this.takeTransfer(comId, size, dataLength);
+            if (data == null) {
+                throw new PacketSplittingException(this.channelId, comId, size, this.maxParts);
+            }
+            return new FriendlyByteBuf(data);
+        };
+    }
 
-            Map<Integer, byte[]> partsMap = PACKAGE_CACHE.get(comId);
-            if (partsMap == null || partsMap.size() != size - 1) {
-                int partSize = partsMap == null ? 0 : partsMap.size();
-                int id = buf.readUnsignedByte();
-                int max = this.packetMaximums.get(id) == null ? 0 : this.packetMaximums.get(id);
-                throw new PacketSplittingException(this.channelId, partSize, size, max, id);
+    /**
+     * Stores a part of a split packet until the packet itself arrives.
+     * Called on the netty thread, parts of one transfer always arrive before the packet.
+     *
+     * @param connection      the connection the part arrived on.
+     * @param communicationId the id of the transfer.
+     * @param packetIndex     the index of the part.
+     * @param packetCount     the total number of parts.
+     * @param payload         the part data.
+     */
+    public void addPackagePart(Connection connection, int communicationId, int packetIndex, int packetCount, ByteBuf payload) {
+        synchronized (this.reassemblyTables) {
+            Map<Integer, Transfer> transfers = this.reassemblyTables.computeIfAbsent(connection, c -> new HashMap<>());
+
+            long time = Util.getMillis();
+            transfers.values().removeIf(transfer -> {
+                if (time - transfer.startTime <= TRANSFER_TIMEOUT_MILLIS)
+                    return false;
+                LogManager.getLogger().warn("Dropping incomplete split packet on channel \"" + this.channelId + "\" after " + TRANSFER_TIMEOUT_MILLIS + "ms, received " + transfer.received + " of " + transfer.parts.length + " parts.");
+                return true;
+            });
+
+            if (packetCount <= 0 || packetCount > this.maxParts || packetIndex < 0 || packetIndex >= packetCount ||
+                    payload.readableBytes() > MAX_PACKET_SIZE) {
+                LogManager.getLogger().warn("Dropping invalid split packet part on channel \"" + this.channelId + "\": part " + packetIndex + " of " + packetCount + " with " + payload.readableBytes() + " bytes.");
+                return;
             }
 
-            //Add data that came from this packet
-            this.addPackagePart(comId, 0, buf.readByteArray());
+            Transfer transfer = transfers.get(communicationId);
+            if (transfer == null) {
+                if (transfers.size() >= MAX_PENDING_TRANSFERS) {
+                    LogManager.getLogger().warn("Dropping split packet part on channel \"" + this.channelId + "\", too many incomplete transfers.");
+                    return;
+                }
+                transfer = new Transfer(packetCount, time);
+                transfers.put(communicationId, transfer);
+            }
 
-            //Combine Cached Data
-            final byte[] packetData = partsMap.entrySet()
-                    .stream()
-                    .sorted(Map.Entry.comparingByKey())
-                    .map(Map.Entry::getValue)
-                    .reduce(new byte[0], Bytes::concat);
+            if (transfer.parts.length != packetCount || transfer.parts[packetIndex] != null) {
+                LogManager.getLogger().warn("Dropping split packet transfer on channel \"" + this.channelId + "\", received inconsistent part " + packetIndex + " of " + packetCount + ".");
+                transfers.remove(communicationId);
+                return;
+            }
 
-            FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.wrappedBuffer(packetData));
+            transfer.parts[packetIndex] = payload;
+            transfer.received++;
+            transfer.length += payload.readableBytes();
+        }
+    }
 
-            //remove data from cache
-            PACKAGE_CACHE.remove(comId);
-            return buffer;
-        };
+    /**
+     * Removes a complete transfer and combines its parts into one buffer without copying.
+     * The decoder does not know the connection, so all connections are searched, the random communication id start
+     * and the verification of part count and length make mix-ups between connections practically impossible.
+     *
+     * @param communicationId the id of the transfer.
+     * @param packetCount     the expected number of parts.
+     * @param length          the expected total length.
+     * @return the combined data, or null if the transfer is missing or incomplete.
+     */
+    private ByteBuf takeTransfer(int communicationId, int packetCount, int length) {
+        synchronized (this.reassemblyTables) {
+            for (Map<Integer, Transfer> transfers : this.reassemblyTables.values()) {
+                Transfer transfer = transfers.get(communicationId);
+                if (transfer == null || transfer.parts.length != packetCount || transfer.received != packetCount || transfer.length != length)
+                    continue;
+
+                transfers.remove(communicationId);
+                CompositeByteBuf data = Unpooled.compositeBuffer(packetCount);
+                data.addComponents(true, transfer.parts);
+                return data;
+            }
+            return null;
+        }
     }
 
-    public void addPackagePart(int communicationId, int packetIndex, byte[] payload) {
-        //Sync on the message cache since this is still on the Netty thread.
-        synchronized (PacketSplitter.PACKAGE_CACHE) {
-            PacketSplitter.PACKAGE_CACHE.computeIfAbsent(communicationId, (id) -> new ConcurrentHashMap<>());
-            PacketSplitter.PACKAGE_CACHE.get(communicationId).put(packetIndex, payload);
+    private static class Transfer {
+        final ByteBuf[] parts;
+        final long startTime;
+        int received;
+        int length;
+
+        Transfer(int packetCount, long startTime) {
+            this.parts = new ByteBuf[packetCount];
+            this.startTime = startTime;
         }
     }
 }
 
 class PacketSplittingException extends RuntimeException {
     ResourceLocation channnelId;
-    int actualSize;
+    int communicationId;
     int expectedSize;
     int maximumSize;
-    int packetId;
 
-    public PacketSplittingException(ResourceLocation channnelId, int actualSize, int expectedSize, int maximumSize, int packetId) {
+    public PacketSplittingException(ResourceLocation channnelId, int communicationId, int expectedSize, int maximumSize) {
         this.channnelId = channnelId;
-        this.actualSize = actualSize;
+        this.communicationId = communicationId;
         this.expectedSize = expectedSize;
         this.maximumSize = maximumSize;
-        this.packetId = packetId;
     }
 
     @Override
     public String getMessage() {
         return "Failure Splitting Packets on Channel \"" + this.channnelId.toString() + "\"." +
-                " Number of Packets sent " + this.actualSize + ", Number of Packets expected " + this.expectedSize + ", maximum number of packets for a message of this type " + this.maximumSize;
+                " Missing or incomplete parts for transfer " + this.communicationId + ", Number of Packets expected " + this.expectedSize + ", maximum number of packets for any message " + this.maximumSize;
     }
 
-}
\ No newline at end of file
+}
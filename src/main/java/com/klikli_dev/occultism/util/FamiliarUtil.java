@@ -23,6 +23,7 @@
 package com.klikli_dev.occultism.util;
 
 import com.klikli_dev.occultism.Occultism;
+import com.klikli_dev.occultism.common.entity.familiar.FamiliarRegistry;
 import com.klikli_dev.occultism.common.entity.familiar.IFamiliar;
 import com.klikli_dev.occultism.common.item.tool.FamiliarRingItem;
 import com.klikli_dev.occultism.registry.OccultismCapabilities;
@@ -96,6 +97,10 @@ public class FamiliarUtil {
 
     public static <T extends Entity & IFamiliar> List<T> getAllNearbyFamiliars(LivingEntity owner, EntityType<T> type,
                                                                                Predicate<T> pred) {
+        //on the server familiars are looked up by owner instead of querying entities
+        if (!owner.level().isClientSide)
+            return FamiliarRegistry.getNearbyFamiliars(owner, type, owner.getBoundingBox().inflate(10), pred);
+
         return owner.level().getEntities(type, owner.getBoundingBox().inflate(10),
                 e -> pred.test(e) && e.getFamiliarOwner() == owner && e.isAlive());
     }
@@ -109,6 +114,10 @@ public class FamiliarUtil {
     @SuppressWarnings("unchecked")
     public static <T extends Entity & IFamiliar> List<T> getAllEquippedFamiliars(LivingEntity owner, EntityType<T> type,
                                                                                  Predicate<T> pred) {
+        //on the server equipped rings report their familiars each tick, so there is no need to scan all curios
+        if (!owner.level().isClientSide)
+            return FamiliarRegistry.getEquippedFamiliars(owner, type, pred);
+
         List<T> familiars = new ArrayList<>();
         var curios = CuriosApi.getCuriosHelper().getEquippedCurios(owner).orElse(null);
         if (curios == null)
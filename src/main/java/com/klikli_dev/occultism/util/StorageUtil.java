@@ -24,7 +24,6 @@ package com.klikli_dev.occultism.util;
 
 import com.klikli_dev.occultism.api.common.blockentity.IStorageController;
 import com.klikli_dev.occultism.api.common.container.IStorageControllerContainer;
-import com.klikli_dev.occultism.network.OccultismPackets;
 import net.minecraft.core.BlockPos;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.tags.TagKey;
@@ -85,9 +84,9 @@ public class StorageUtil {
                             ItemHandlerHelper.copyStackWithSize(stackInSlot, remainingAfterInsert));
             }
 
-            //finally if requested, send the updated storage controller contents to the player.
+            //finally if requested, sync the container slots to the player.
+            //the storage controller contents are sent to all viewers at the end of the tick.
             if (sendStackUpdate) {
-                OccultismPackets.sendTo(player, storageController.getMessageUpdateStacks());
                 ((AbstractContainerMenu) container).broadcastChanges();
             }
 
@@ -125,9 +124,9 @@ public class StorageUtil {
                 }
             }
 
-            //finally if requested, send the updated storage controller contents to the player.
+            //finally if requested, sync the container slots to the player.
+            //the storage controller contents are sent to all viewers at the end of the tick.
             if (sendStackUpdate) {
-                OccultismPackets.sendTo(player, storageController.getMessageUpdateStacks());
                 ((AbstractContainerMenu) container).broadcastChanges();
             }
         }